@@ -0,0 +1,34 @@
+package com.ecommerce.order.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Come org.openjdk.jmh.Main, ma di default scrive i risultati in JSON in target/jmh-result.json
+// per poterli confrontare tra una release e l'altra.
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp()) {
+            cli.showHelp();
+            return;
+        }
+        Options options = new OptionsBuilder()
+                .parent(cli)
+                .resultFormat(cli.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(cli.getResult().orElse("target/jmh-result.json"))
+                .build();
+        Runner runner = new Runner(options);
+        if (cli.shouldList()) {
+            runner.list();
+        } else {
+            runner.run();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.order.bench;
+
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Genera ordini deterministici (seed fisso) con il mix VIP / declinati richiesto
+final class OrderFixtures {
+
+    static final int SKU_COUNT = 1_000;
+
+    private OrderFixtures() {
+    }
+
+    static Order[] orders(int count, int cartSize, double vipRatio, double declineRatio) {
+        SplittableRandom random = new SplittableRandom(42);
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++) {
+            boolean vip = random.nextDouble() < vipRatio;
+            boolean declined = random.nextDouble() < declineRatio;
+            String email = (declined ? SimulatedPaymentGateway.DECLINE_PREFIX : "customer-") + i + "@example.com";
+            List<OrderItem> items = new ArrayList<>(cartSize);
+            for (int j = 0; j < cartSize; j++) {
+                items.add(new OrderItem(sku(random.nextInt(SKU_COUNT)), 1 + random.nextInt(3)));
+            }
+            double total = Math.round(random.nextDouble(5.0, 250.0) * 100) / 100.0;
+            orders[i] = new Order("ORD-" + i, new Customer(email, vip), items, total);
+        }
+        return orders;
+    }
+
+    static String sku(int index) {
+        return "SKU-" + index;
+    }
+}
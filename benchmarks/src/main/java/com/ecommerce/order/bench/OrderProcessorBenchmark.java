@@ -0,0 +1,201 @@
+package com.ecommerce.order.bench;
+
+import com.ecommerce.order.model.CompactOrder;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.model.SkuDictionary;
+import com.ecommerce.order.ports.BatchingShippingService;
+import com.ecommerce.order.ports.CachingInventoryService;
+import com.ecommerce.order.ports.CachingPaymentGateway;
+import com.ecommerce.order.ports.InMemoryInventoryService;
+import com.ecommerce.order.ports.InventoryService;
+import com.ecommerce.order.ports.PaymentGateway;
+import com.ecommerce.order.ports.ShippingService;
+import com.ecommerce.order.service.AsyncOrderProcessor;
+import com.ecommerce.order.service.OrderProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput e latenza (SampleTime, con percentili) di OrderProcessor e delle sue varianti.
+// Gli esiti PAYMENT_DECLINED fanno parte del mix; lo stock è sempre disponibile.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderProcessorBenchmark {
+
+    private static final int ORDER_POOL = 1_024;
+    private static final int BATCH_SIZE = 64;
+    private static final int SHIPPING_THREADS = 8;
+
+    @Param({"1", "10", "100", "500"})
+    public int cartSize;
+
+    @Param({"0.0", "0.2"})
+    public double vipRatio;
+
+    @Param({"0.0", "0.1"})
+    public double declineRatio;
+
+    @Param({"0", "50"})
+    public long portLatencyMicros;
+
+    private Order[] orders;
+    private CompactOrder[] compactOrders;
+    private SkuDictionary skus;
+    private List<List<Order>> batches;
+    private InventoryService inventory;
+    private PaymentGateway payment;
+    private ShippingService shipping;
+    private OrderProcessor processor;
+    private OrderProcessor cachedProcessor;
+    private OrderProcessor inMemoryProcessor;
+    private OrderProcessor speculativeProcessor;
+    private OrderProcessor cachedPaymentProcessor;
+    private OrderProcessor batchingProcessor;
+    private BatchingShippingService batchingShipping;
+    private AsyncOrderProcessor asyncProcessor;
+    private ExecutorService asyncExecutor;
+    private int next;
+    private int nextBatch;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        long latencyNanos = TimeUnit.MICROSECONDS.toNanos(portLatencyMicros);
+        orders = OrderFixtures.orders(ORDER_POOL, cartSize, vipRatio, declineRatio);
+        skus = new SkuDictionary();
+        compactOrders = new CompactOrder[ORDER_POOL];
+        for (int i = 0; i < ORDER_POOL; i++) {
+            compactOrders[i] = CompactOrder.from(orders[i], skus);
+        }
+        batches = new ArrayList<>();
+        for (int i = 0; i < ORDER_POOL; i += BATCH_SIZE) {
+            batches.add(Arrays.asList(orders).subList(i, i + BATCH_SIZE));
+        }
+        inventory = new SimulatedInventoryService(latencyNanos);
+        payment = new SimulatedPaymentGateway(latencyNanos);
+        shipping = new SimulatedShippingService(latencyNanos);
+        processor = new OrderProcessor(inventory, payment, shipping);
+        cachedProcessor = new OrderProcessor(
+                new CachingInventoryService(inventory, OrderFixtures.SKU_COUNT, Duration.ofSeconds(1)), payment, shipping);
+        asyncExecutor = Executors.newFixedThreadPool(4);
+        asyncProcessor = new AsyncOrderProcessor(inventory, payment, shipping, asyncExecutor);
+        speculativeProcessor = new OrderProcessor(inventory, payment, shipping).withSpeculativeAuthorization(asyncExecutor);
+        cachedPaymentProcessor = new OrderProcessor(
+                inventory, new CachingPaymentGateway(payment, Duration.ofSeconds(1), ORDER_POOL), shipping);
+        batchingShipping = new BatchingShippingService(
+                shipping, ORDER_POOL, BATCH_SIZE, Duration.ofMillis(1), Duration.ofMillis(5));
+        batchingProcessor = new OrderProcessor(inventory, payment, batchingShipping);
+    }
+
+    // Stock in memoria ricaricato a ogni iterazione, così non si esaurisce durante la misura
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        InMemoryInventoryService inMemory = new InMemoryInventoryService(OrderFixtures.SKU_COUNT);
+        for (int i = 0; i < OrderFixtures.SKU_COUNT; i++) {
+            inMemory.addStock(OrderFixtures.sku(i), Integer.MAX_VALUE);
+        }
+        inMemoryProcessor = new OrderProcessor(inMemory, payment, shipping);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        batchingShipping.close();
+        asyncExecutor.shutdownNow();
+    }
+
+    private Order nextOrder() {
+        Order order = orders[next];
+        next = (next + 1) & (ORDER_POOL - 1);
+        return order;
+    }
+
+    @Benchmark
+    public String processOrder() {
+        return processor.processOrder(nextOrder());
+    }
+
+    @Benchmark
+    public String processCompactOrder() {
+        CompactOrder order = compactOrders[next];
+        next = (next + 1) & (ORDER_POOL - 1);
+        return processor.processOrder(order, skus);
+    }
+
+    @Benchmark
+    public String processOrderAsync() {
+        return asyncProcessor.processOrderAsync(nextOrder()).join();
+    }
+
+    @Benchmark
+    public String processOrderWithCachedInventory() {
+        return cachedProcessor.processOrder(nextOrder());
+    }
+
+    // Autorizzazione in parallelo al controllo stock, sullo stesso executor della variante async
+    @Benchmark
+    public String processOrderWithSpeculativeAuthorization() {
+        return speculativeProcessor.processOrder(nextOrder());
+    }
+
+    // Solo le pre-autorizzazioni VIP passano dalla cache: con vipRatio 0.0 misura il costo del decoratore,
+    // con 0.2 il pool ripete gli stessi clienti e, entro la finestra, le servisce la cache
+    @Benchmark
+    public String processOrderWithCachedPayment() {
+        return cachedPaymentProcessor.processOrder(nextOrder());
+    }
+
+    // Il raggruppamento avviene solo tra chiamanti concorrenti: SHIPPING_THREADS thread, ognuno
+    // paga fino al ritardo massimo della sua coda. Indice casuale perché next non è thread-safe.
+    @Benchmark
+    @Threads(SHIPPING_THREADS)
+    public String processOrderWithBatchingShipping() {
+        return batchingProcessor.processOrder(orders[ThreadLocalRandom.current().nextInt(ORDER_POOL)]);
+    }
+
+    @Benchmark
+    public String processOrderWithInMemoryInventory() {
+        return inMemoryProcessor.processOrder(nextOrder());
+    }
+
+    // Un blocco di BATCH_SIZE ordini per invocazione; i risultati sono per singolo ordine
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Map<String, String> processOrders() {
+        List<Order> batch = batches.get(nextBatch);
+        nextBatch = (nextBatch + 1) % batches.size();
+        return processor.processOrders(batch);
+    }
+
+    // Costo del controllo stock in blocco rispetto al carrello, senza le altre porte
+    @Benchmark
+    public Map<String, Boolean> checkAvailability() {
+        List<OrderItem> items = nextOrder().getItems();
+        return inventory.checkAvailability(items);
+    }
+}
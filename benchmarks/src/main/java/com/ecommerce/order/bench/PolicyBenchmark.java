@@ -0,0 +1,120 @@
+package com.ecommerce.order.bench;
+
+import com.ecommerce.order.model.CompactOrder;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.policy.CompiledPolicy;
+import com.ecommerce.order.policy.ReloadingOrderPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Costo per ordine delle decisioni di autorizzazione e priorità: regole scritte a mano (com'erano
+// in OrderProcessor) contro CompiledPolicy di default, una policy di mercato con SKU prioritari
+// e una ReloadingOrderPolicy (lettura volatile in più). Nessuna porta coinvolta.
+// Da lanciare con -prof gc per verificare che la valutazione non allochi.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyBenchmark {
+
+    private static final int ORDER_POOL = 1_024;
+
+    @Param({"1", "10"})
+    public int cartSize;
+
+    private Order[] orders;
+    private long[] totalCents;
+    private CompiledPolicy defaults;
+    private CompiledPolicy market;
+    private ReloadingOrderPolicy reloading;
+    private Path rulesFile;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        orders = OrderFixtures.orders(ORDER_POOL, cartSize, 0.2, 0.0);
+        totalCents = new long[ORDER_POOL];
+        for (int i = 0; i < ORDER_POOL; i++) {
+            totalCents[i] = CompactOrder.toCents(orders[i].getTotalAmount());
+        }
+        defaults = CompiledPolicy.defaults();
+
+        // SKU prioritari mai presenti nei carrelli: caso peggiore, si scorre tutto il carrello
+        Properties rules = new Properties();
+        rules.setProperty("preauth.vip", "true");
+        rules.setProperty("preauth.amount", "1.00");
+        rules.setProperty("preauth.vip.limit", "");
+        rules.setProperty("priority.vip", "true");
+        rules.setProperty("priority.threshold", "100.00");
+        rules.setProperty("priority.skus", "FRESH-1,FRESH-2,FRESH-3,FRESH-4");
+        market = CompiledPolicy.compile(rules);
+
+        rulesFile = Files.createTempFile("policy-bench", ".properties");
+        Files.writeString(rulesFile, "preauth.vip=true\npreauth.amount=1.00\npreauth.vip.limit=\n"
+                + "priority.vip=true\npriority.threshold=100.00\npriority.skus=\n");
+        reloading = new ReloadingOrderPolicy(rulesFile, Duration.ofSeconds(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reloading.close();
+        Files.deleteIfExists(rulesFile);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (ORDER_POOL - 1);
+        return index;
+    }
+
+    @Benchmark
+    public double hardCodedRules() {
+        int i = nextIndex();
+        Order order = orders[i];
+        boolean vip = order.getCustomer().isVip();
+        double amount = vip ? 1.0 : order.getTotalAmount();
+        return vip || totalCents[i] > 10_000 ? amount : -amount;
+    }
+
+    @Benchmark
+    public double defaultPolicy() {
+        return decide(defaults, nextIndex());
+    }
+
+    @Benchmark
+    public double marketPolicyWithSkus() {
+        return decide(market, nextIndex());
+    }
+
+    @Benchmark
+    public double reloadingPolicy() {
+        return decide(reloading.current(), nextIndex());
+    }
+
+    // Le stesse due chiamate che OrderProcessor fa per ogni Order, conversione in centesimi compresa
+    private double decide(CompiledPolicy rules, int i) {
+        Order order = orders[i];
+        double amount = rules.authorizationAmount(order);
+        return rules.isPriority(order) ? amount : -amount;
+    }
+}
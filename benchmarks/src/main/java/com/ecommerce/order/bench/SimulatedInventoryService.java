@@ -0,0 +1,39 @@
+package com.ecommerce.order.bench;
+
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.ports.InventoryService;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Inventario remoto simulato: stock sempre disponibile, latenza fissa per chiamata (anche in blocco)
+class SimulatedInventoryService implements InventoryService {
+
+    private final long latencyNanos;
+
+    SimulatedInventoryService(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public boolean checkStock(String sku, int quantity) {
+        SimulatedLatency.pause(latencyNanos);
+        return true;
+    }
+
+    @Override
+    public Map<String, Boolean> checkAvailability(List<OrderItem> items) {
+        SimulatedLatency.pause(latencyNanos);
+        Map<String, Boolean> availability = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            availability.put(item.getSku(), Boolean.TRUE);
+        }
+        return availability;
+    }
+
+    @Override
+    public void reserveStock(List<OrderItem> items) {
+        SimulatedLatency.pause(latencyNanos);
+    }
+}
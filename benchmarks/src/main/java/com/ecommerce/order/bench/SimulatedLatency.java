@@ -0,0 +1,26 @@
+package com.ecommerce.order.bench;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Attesa che simula la latenza di rete di una porta.
+// Sotto i 100µs si fa spin (parkNanos non è abbastanza preciso), sopra si parcheggia il thread.
+public final class SimulatedLatency {
+
+    private static final long SPIN_THRESHOLD_NANOS = 100_000;
+
+    private SimulatedLatency() {
+    }
+
+    public static void pause(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + nanos;
+        if (nanos > SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(nanos - SPIN_THRESHOLD_NANOS);
+        }
+        while (System.nanoTime() - deadline < 0) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ecommerce.order.bench;
+
+import com.ecommerce.order.ports.PaymentGateway;
+
+// Gateway simulato: declina i clienti la cui email inizia con DECLINE_PREFIX (vedi OrderFixtures)
+class SimulatedPaymentGateway implements PaymentGateway {
+
+    static final String DECLINE_PREFIX = "decline-";
+
+    private final long latencyNanos;
+
+    SimulatedPaymentGateway(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public boolean authorize(double amount, String customerEmail) {
+        SimulatedLatency.pause(latencyNanos);
+        return !customerEmail.startsWith(DECLINE_PREFIX);
+    }
+
+    @Override
+    public void voidAuthorization(String orderId, double amount, String customerEmail) {
+        SimulatedLatency.pause(latencyNanos);
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.order.bench;
+
+import com.ecommerce.order.ports.ShippingService;
+
+import java.util.Map;
+
+// Corriere simulato: latenza fissa per chiamata, anche per l'invio in blocco
+class SimulatedShippingService implements ShippingService {
+
+    private final long latencyNanos;
+
+    SimulatedShippingService(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public void scheduleDelivery(String orderId, boolean priority) {
+        SimulatedLatency.pause(latencyNanos);
+    }
+
+    @Override
+    public void scheduleDeliveries(Map<String, Boolean> deliveries) {
+        SimulatedLatency.pause(latencyNanos);
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.bench.SimulatedLatency;
+import com.ecommerce.order.service.OrderProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Closed loop: users utenti concorrenti, ognuno invia l'ordine successivo solo dopo la risposta
+// al precedente (più thinkTime). Misura il throughput massimo sostenibile con quella concorrenza;
+// le latenze sono quelle viste da chi ha ottenuto risposta, non quelle di un arrivo costante.
+final class ClosedLoopDriver implements LoadDriver {
+
+    private final OrderProcessor processor;
+    private final LoadOrders orders;
+    private final int users;
+    private final Duration thinkTime;
+
+    ClosedLoopDriver(OrderProcessor processor, LoadOrders orders, int users, Duration thinkTime) {
+        if (users <= 0) {
+            throw new IllegalArgumentException("users deve essere positivo: " + users);
+        }
+        this.processor = processor;
+        this.orders = orders;
+        this.users = users;
+        this.thinkTime = thinkTime;
+    }
+
+    @Override
+    public void run(Duration duration, LoadRecorder recorder) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long thinkNanos = thinkTime.toNanos();
+        List<Thread> threads = new ArrayList<>(users);
+        for (int u = 0; u < users; u++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() - end < 0) {
+                    recorder.sent();
+                    recorder.execute(processor, orders.next(), System.nanoTime());
+                    SimulatedLatency.pause(thinkNanos);
+                }
+            }, "load-user-" + u);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        recorder.elapsed(System.nanoTime() - start);
+    }
+
+    @Override
+    public String describe() {
+        return String.format("closed loop, %d users, think time %d ms", users, thinkTime.toMillis());
+    }
+}
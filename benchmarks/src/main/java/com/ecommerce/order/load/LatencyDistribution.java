@@ -0,0 +1,118 @@
+package com.ecommerce.order.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Distribuzione della latenza di un backend simulato, in nanosecondi.
+// Si descrive come testo, es. "const:50us", "uniform:20us-200us", "exp:100us" (media),
+// "lognormal:200us,0.5" (mediana e sigma del logaritmo, coda lunga come le reti reali).
+// Unità ammesse: ns, us, ms, s.
+public final class LatencyDistribution {
+
+    private enum Kind { CONSTANT, UNIFORM, EXPONENTIAL, LOGNORMAL }
+
+    private final Kind kind;
+    private final long a;
+    private final long b;
+    private final double sigma;
+    private final String spec;
+
+    private LatencyDistribution(Kind kind, long a, long b, double sigma, String spec) {
+        this.kind = kind;
+        this.a = a;
+        this.b = b;
+        this.sigma = sigma;
+        this.spec = spec;
+    }
+
+    public static LatencyDistribution none() {
+        return constant(0);
+    }
+
+    public static LatencyDistribution constant(long nanos) {
+        return new LatencyDistribution(Kind.CONSTANT, nanos, nanos, 0, "const:" + nanos + "ns");
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Distribuzione non valida (atteso tipo:parametri): " + spec);
+        }
+        String kind = spec.substring(0, colon).trim();
+        String args = spec.substring(colon + 1).trim();
+        switch (kind) {
+            case "const":
+                return new LatencyDistribution(Kind.CONSTANT, parseNanos(args), 0, 0, spec);
+            case "uniform": {
+                String[] bounds = args.split("-");
+                if (bounds.length != 2) {
+                    throw new IllegalArgumentException("uniform richiede min-max: " + spec);
+                }
+                long min = parseNanos(bounds[0]);
+                long max = parseNanos(bounds[1]);
+                if (max < min) {
+                    throw new IllegalArgumentException("uniform con max < min: " + spec);
+                }
+                return new LatencyDistribution(Kind.UNIFORM, min, max, 0, spec);
+            }
+            case "exp":
+                return new LatencyDistribution(Kind.EXPONENTIAL, parseNanos(args), 0, 0, spec);
+            case "lognormal": {
+                String[] params = args.split(",");
+                if (params.length != 2) {
+                    throw new IllegalArgumentException("lognormal richiede mediana,sigma: " + spec);
+                }
+                return new LatencyDistribution(Kind.LOGNORMAL, parseNanos(params[0]), 0,
+                        Double.parseDouble(params[1].trim()), spec);
+            }
+            default:
+                throw new IllegalArgumentException("Distribuzione sconosciuta: " + kind);
+        }
+    }
+
+    public long nextNanos() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (kind) {
+            case UNIFORM:
+                return a == b ? a : random.nextLong(a, b + 1);
+            case EXPONENTIAL:
+                return (long) (-a * Math.log(1.0 - random.nextDouble()));
+            case LOGNORMAL:
+                return (long) (a * Math.exp(sigma * random.nextGaussian()));
+            default:
+                return a;
+        }
+    }
+
+    // "250us", "3ms", "1.5s", "800ns"
+    static long parseNanos(String text) {
+        String value = text.trim();
+        TimeUnit unit;
+        String number;
+        if (value.endsWith("ns")) {
+            unit = TimeUnit.NANOSECONDS;
+            number = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("us")) {
+            unit = TimeUnit.MICROSECONDS;
+            number = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("ms")) {
+            unit = TimeUnit.MILLISECONDS;
+            number = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("s")) {
+            unit = TimeUnit.SECONDS;
+            number = value.substring(0, value.length() - 1);
+        } else {
+            throw new IllegalArgumentException("Durata senza unità (ns, us, ms, s): " + text);
+        }
+        double amount = Double.parseDouble(number.trim());
+        if (amount < 0) {
+            throw new IllegalArgumentException("Durata negativa: " + text);
+        }
+        return Math.round(amount * unit.toNanos(1));
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.order.load;
+
+import java.time.Duration;
+
+// Genera carico su OrderProcessor per la durata indicata registrando tutto in recorder.
+// Ritorna solo quando nessun ordine è più in esecuzione, così il warmup non sconfina nella misura;
+// gli ordini mai partiti entro il tempo di attesa sono registrati come dropped.
+interface LoadDriver {
+
+    void run(Duration duration, LoadRecorder recorder) throws InterruptedException;
+
+    String describe();
+}
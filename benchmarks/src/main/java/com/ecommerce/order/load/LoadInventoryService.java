@@ -0,0 +1,43 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.ports.InMemoryInventoryService;
+import com.ecommerce.order.ports.InventoryService;
+
+import java.util.List;
+import java.util.Map;
+
+// Magazzino simulato: latenza ed errori di SimulatedBackend sopra uno stock reale
+// (InMemoryInventoryService), così le prenotazioni consumano davvero le giacenze durante un soak
+class LoadInventoryService implements InventoryService {
+
+    private final SimulatedBackend backend;
+    private final InMemoryInventoryService stock;
+
+    LoadInventoryService(SimulatedBackend backend, int skuCount, int stockPerSku) {
+        this.backend = backend;
+        this.stock = new InMemoryInventoryService(skuCount);
+        for (int i = 0; i < skuCount; i++) {
+            stock.addStock(LoadOrders.sku(i), stockPerSku);
+        }
+    }
+
+    @Override
+    public boolean checkStock(String sku, int quantity) {
+        backend.call("checkStock");
+        return stock.checkStock(sku, quantity);
+    }
+
+    // Una sola chiamata simulata per tutto il carrello, come un'API bulk
+    @Override
+    public Map<String, Boolean> checkAvailability(List<OrderItem> items) {
+        backend.call("checkAvailability");
+        return stock.checkAvailability(items);
+    }
+
+    @Override
+    public void reserveStock(List<OrderItem> items) {
+        backend.call("reserveStock");
+        stock.reserveStock(items);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Genera ordini sempre nuovi (id univoci) con carrelli casuali sugli SKU simulati
+final class LoadOrders {
+
+    private final int cartSize;
+    private final double vipRatio;
+    private final int skuCount;
+    private final int customers;
+    private final AtomicLong sequence = new AtomicLong();
+
+    LoadOrders(int cartSize, double vipRatio, int skuCount, int customers) {
+        if (cartSize <= 0 || skuCount <= 0 || customers <= 0) {
+            throw new IllegalArgumentException("cartSize, skuCount e customers devono essere positivi");
+        }
+        this.cartSize = cartSize;
+        this.vipRatio = vipRatio;
+        this.skuCount = skuCount;
+        this.customers = customers;
+    }
+
+    static String sku(int index) {
+        return "SKU-" + index;
+    }
+
+    Order next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = sequence.incrementAndGet();
+        List<OrderItem> items = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            items.add(new OrderItem(sku(random.nextInt(skuCount)), 1 + random.nextInt(3)));
+        }
+        double total = random.nextLong(500, 25_001) / 100.0;
+        Customer customer = new Customer("customer-" + random.nextInt(customers) + "@example.com",
+                random.nextDouble() < vipRatio);
+        return new Order("LOAD-" + id, customer, items, total);
+    }
+}
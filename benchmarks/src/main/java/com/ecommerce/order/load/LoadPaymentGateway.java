@@ -0,0 +1,32 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.ports.PaymentGateway;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Gateway simulato: declina una quota casuale delle autorizzazioni (declineRate), a parte
+// gli errori tecnici di SimulatedBackend
+class LoadPaymentGateway implements PaymentGateway {
+
+    private final SimulatedBackend backend;
+    private final double declineRate;
+
+    LoadPaymentGateway(SimulatedBackend backend, double declineRate) {
+        if (declineRate < 0 || declineRate > 1) {
+            throw new IllegalArgumentException("declineRate deve essere tra 0 e 1: " + declineRate);
+        }
+        this.backend = backend;
+        this.declineRate = declineRate;
+    }
+
+    @Override
+    public boolean authorize(double amount, String customerEmail) {
+        backend.call("authorize");
+        return ThreadLocalRandom.current().nextDouble() >= declineRate;
+    }
+
+    @Override
+    public void voidAuthorization(String orderId, double amount, String customerEmail) {
+        backend.call("voidAuthorization");
+    }
+}
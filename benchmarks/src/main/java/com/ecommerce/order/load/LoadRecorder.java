@@ -0,0 +1,85 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.metrics.LatencyHistogram;
+import com.ecommerce.order.metrics.OrderMetrics;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.service.OrderProcessor;
+import com.ecommerce.order.service.OutOfStockException;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Esiti e latenze di una fase di carico.
+// responseTime parte dall'istante in cui l'ordine doveva partire secondo il ritmo di arrivo
+// (non da quando un thread libero l'ha preso): se il sistema resta indietro l'attesa in coda
+// finisce nella latenza invece di sparire (coordinated omission). serviceTime misura solo
+// processOrder. Nel closed loop le due coincidono.
+// Gli ordini abbandonati in coda (dropped) entrano in responseTime con l'attesa accumulata, ma
+// non in completed né in serviceTime.
+final class LoadRecorder {
+
+    final LatencyHistogram responseTime = new LatencyHistogram();
+    final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder outOfStock = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long elapsedNanos;
+
+    // Esegue l'ordine e ne registra esito e latenze; le eccezioni diventano esiti
+    void execute(OrderProcessor processor, Order order, long intendedStartNanos) {
+        long start = System.nanoTime();
+        String outcome;
+        try {
+            outcome = processor.processOrder(order);
+        } catch (OutOfStockException e) {
+            outcome = OrderProcessor.OUT_OF_STOCK;
+        } catch (RuntimeException e) {
+            outcome = OrderMetrics.FAILED;
+        }
+        long end = System.nanoTime();
+        responseTime.record(end - intendedStartNanos);
+        serviceTime.record(end - start);
+        switch (outcome) {
+            case OrderProcessor.ORDER_CONFIRMED:
+                confirmed.increment();
+                break;
+            case OrderProcessor.PAYMENT_DECLINED:
+                declined.increment();
+                break;
+            case OrderProcessor.OUT_OF_STOCK:
+                outOfStock.increment();
+                break;
+            default:
+                failed.increment();
+        }
+    }
+
+    void sent() {
+        sent.increment();
+    }
+
+    // Ordine mai eseguito, abbandonato all'istante abandonedAtNanos
+    void dropped(long intendedStartNanos, long abandonedAtNanos) {
+        responseTime.record(abandonedAtNanos - intendedStartNanos);
+        dropped.increment();
+    }
+
+    void elapsed(long nanos) {
+        this.elapsedNanos = nanos;
+    }
+
+    long sentCount() { return sent.sum(); }
+    long completed() { return serviceTime.count(); }
+    long dropped() { return dropped.sum(); }
+    long confirmed() { return confirmed.sum(); }
+    long declined() { return declined.sum(); }
+    long outOfStock() { return outOfStock.sum(); }
+    long failed() { return failed.sum(); }
+    long elapsedNanos() { return elapsedNanos; }
+
+    double throughputPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : completed() * 1e9 / elapsedNanos;
+    }
+}
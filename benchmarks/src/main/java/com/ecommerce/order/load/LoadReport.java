@@ -0,0 +1,54 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.metrics.InMemoryOrderMetrics;
+import com.ecommerce.order.metrics.LatencyHistogram;
+import com.ecommerce.order.metrics.Stage;
+
+import java.util.List;
+
+// Riepilogo testuale di una fase misurata: configurazione, esiti, throughput, percentili
+// di latenza end-to-end e per stadio, chiamate ed errori dei backend simulati
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private LoadReport() {
+    }
+
+    static String format(String driver, long warmupMillis, LoadRecorder recorder, InMemoryOrderMetrics metrics,
+                         List<SimulatedBackend> backends) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("driver            %s%n", driver));
+        out.append(String.format("measured          %.1f s (after %.1f s warmup)%n",
+                recorder.elapsedNanos() / 1e9, warmupMillis / 1e3));
+        out.append(String.format("orders            sent=%d completed=%d dropped=%d%n",
+                recorder.sentCount(), recorder.completed(), recorder.dropped()));
+        out.append(String.format("outcomes          confirmed=%d declined=%d out-of-stock=%d failed=%d%n",
+                recorder.confirmed(), recorder.declined(), recorder.outOfStock(), recorder.failed()));
+        out.append(String.format("throughput        %.1f orders/s%n", recorder.throughputPerSecond()));
+        out.append(latencyLine("response", recorder.responseTime));
+        out.append(latencyLine("service", recorder.serviceTime));
+        for (Stage stage : Stage.values()) {
+            out.append(latencyLine(stage.name().toLowerCase(), metrics.latency(stage)));
+        }
+        for (SimulatedBackend backend : backends) {
+            out.append("backend           ").append(backend).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String latencyLine(String name, LatencyHistogram histogram) {
+        StringBuilder line = new StringBuilder(String.format("%-17s n=%d mean=%s", name, histogram.count(),
+                millis(Math.round(histogram.mean()))));
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(" p%s=%s", percentile == Math.rint(percentile)
+                    ? String.valueOf((long) percentile) : String.valueOf(percentile),
+                    millis(histogram.valueAtPercentile(percentile))));
+        }
+        return line.append(" max=").append(millis(histogram.max())).append('\n').toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+}
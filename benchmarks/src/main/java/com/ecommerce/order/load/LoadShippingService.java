@@ -0,0 +1,25 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.ports.ShippingService;
+
+import java.util.Map;
+
+class LoadShippingService implements ShippingService {
+
+    private final SimulatedBackend backend;
+
+    LoadShippingService(SimulatedBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public void scheduleDelivery(String orderId, boolean priority) {
+        backend.call("scheduleDelivery");
+    }
+
+    // Una sola chiamata simulata per tutto il blocco
+    @Override
+    public void scheduleDeliveries(Map<String, Boolean> deliveries) {
+        backend.call("scheduleDeliveries");
+    }
+}
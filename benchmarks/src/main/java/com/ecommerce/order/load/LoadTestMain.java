@@ -0,0 +1,138 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.metrics.InMemoryOrderMetrics;
+import com.ecommerce.order.service.OrderProcessor;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Test di carico / soak di OrderProcessor con backend simulati nello stesso processo, senza rete:
+//   java -cp benchmarks/target/benchmarks.jar com.ecommerce.order.load.LoadTestMain --mode=open --rate=2000
+// Opzioni --nome=valore (vedi DEFAULTS); le latenze usano la sintassi di LatencyDistribution.
+// Con --p99-slo il processo termina con codice 1 se il p99 della risposta supera la soglia,
+// così si può usare come controllo prima di un rilascio.
+public final class LoadTestMain {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("mode", "open");                      // open | closed
+        DEFAULTS.put("rate", "1000");                      // open: ordini al secondo
+        DEFAULTS.put("threads", "64");                     // open: worker
+        DEFAULTS.put("users", "32");                       // closed: utenti concorrenti
+        DEFAULTS.put("think", "0ms");                      // closed: pausa tra due ordini dello stesso utente
+        DEFAULTS.put("warmup", "5s");
+        DEFAULTS.put("duration", "30s");
+        DEFAULTS.put("cart", "3");                         // articoli per ordine
+        DEFAULTS.put("vip", "0.2");                        // quota di clienti VIP
+        DEFAULTS.put("customers", "10000");
+        DEFAULTS.put("skus", "1000");
+        DEFAULTS.put("stock", "100000000");                // giacenza iniziale per SKU
+        DEFAULTS.put("decline", "0.05");                   // quota di pagamenti declinati
+        DEFAULTS.put("inventory-latency", "lognormal:200us,0.5");
+        DEFAULTS.put("payment-latency", "lognormal:1ms,0.6");
+        DEFAULTS.put("shipping-latency", "lognormal:300us,0.5");
+        DEFAULTS.put("inventory-errors", "0");
+        DEFAULTS.put("payment-errors", "0");
+        DEFAULTS.put("shipping-errors", "0");
+        DEFAULTS.put("p99-slo", "");                       // es. 20ms; vuoto = nessun controllo
+    }
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // Tutte le opzioni si interpretano qui: un valore non valido porta a usage(), non a uno stack trace
+        List<SimulatedBackend> backends;
+        OrderProcessor processor;
+        LoadDriver driver;
+        Duration warmup;
+        Duration duration;
+        String slo;
+        long sloNanos;
+        try {
+            Map<String, String> options = parse(args);
+            SimulatedBackend inventoryBackend = new SimulatedBackend("inventory",
+                    LatencyDistribution.parse(options.get("inventory-latency")), Double.parseDouble(options.get("inventory-errors")));
+            SimulatedBackend paymentBackend = new SimulatedBackend("payment",
+                    LatencyDistribution.parse(options.get("payment-latency")), Double.parseDouble(options.get("payment-errors")));
+            SimulatedBackend shippingBackend = new SimulatedBackend("shipping",
+                    LatencyDistribution.parse(options.get("shipping-latency")), Double.parseDouble(options.get("shipping-errors")));
+            backends = List.of(inventoryBackend, paymentBackend, shippingBackend);
+            int skus = Integer.parseInt(options.get("skus"));
+            processor = new OrderProcessor(
+                    new LoadInventoryService(inventoryBackend, skus, Integer.parseInt(options.get("stock"))),
+                    new LoadPaymentGateway(paymentBackend, Double.parseDouble(options.get("decline"))),
+                    new LoadShippingService(shippingBackend));
+            LoadOrders orders = new LoadOrders(Integer.parseInt(options.get("cart")), Double.parseDouble(options.get("vip")),
+                    skus, Integer.parseInt(options.get("customers")));
+
+            if (options.get("mode").equals("open")) {
+                driver = new OpenLoopDriver(processor, orders, Double.parseDouble(options.get("rate")),
+                        Integer.parseInt(options.get("threads")));
+            } else if (options.get("mode").equals("closed")) {
+                driver = new ClosedLoopDriver(processor, orders, Integer.parseInt(options.get("users")),
+                        Duration.ofNanos(LatencyDistribution.parseNanos(options.get("think"))));
+            } else {
+                throw new IllegalArgumentException("mode deve essere open o closed: " + options.get("mode"));
+            }
+            warmup = Duration.ofNanos(LatencyDistribution.parseNanos(options.get("warmup")));
+            duration = Duration.ofNanos(LatencyDistribution.parseNanos(options.get("duration")));
+            slo = options.get("p99-slo");
+            sloNanos = slo.isEmpty() ? Long.MAX_VALUE : LatencyDistribution.parseNanos(slo);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(2);
+            return;
+        }
+
+        // Warmup (JIT, pool di thread) con metriche scartate, poi la fase misurata con metriche nuove.
+        // driver.run ritorna solo a ordini del warmup terminati, che quindi non sporcano la misura.
+        if (!warmup.isZero()) {
+            processor.withMetrics(new InMemoryOrderMetrics());
+            driver.run(warmup, new LoadRecorder());
+        }
+        backends.forEach(SimulatedBackend::reset);
+        InMemoryOrderMetrics metrics = new InMemoryOrderMetrics();
+        processor.withMetrics(metrics);
+        LoadRecorder recorder = new LoadRecorder();
+        driver.run(duration, recorder);
+
+        System.out.print(LoadReport.format(driver.describe(), warmup.toMillis(), recorder, metrics, backends));
+
+        if (!slo.isEmpty()) {
+            long p99 = recorder.responseTime.valueAtPercentile(99);
+            boolean met = p99 <= sloNanos;
+            System.out.printf("p99 slo           %s (p99=%.3fms, target %s)%n", met ? "MET" : "MISSED", p99 / 1e6, slo);
+            if (!met) {
+                System.exit(1);
+            }
+        }
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Argomento non valido (atteso --nome=valore): " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Opzione sconosciuta: --" + name);
+            }
+            options.put(name, arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    private static void usage() {
+        System.err.println("Uso: java -cp benchmarks.jar " + LoadTestMain.class.getName() + " [--nome=valore ...]");
+        for (Map.Entry<String, String> option : DEFAULTS.entrySet()) {
+            System.err.printf("  --%-18s default %s%n", option.getKey(), option.getValue().isEmpty() ? "-" : option.getValue());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.bench.SimulatedLatency;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.service.OrderProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Open loop: gli ordini arrivano a ritmo costante (ratePerSecond) indipendentemente da quanto
+// risponde il sistema, come clienti veri. Un thread dispatcher calcola l'istante previsto di ogni
+// ordine e lo passa a un pool di worker; se i worker sono tutti occupati l'ordine aspetta in
+// coda e quell'attesa viene misurata (LoadRecorder.responseTime parte dall'istante previsto).
+// run ritorna solo quando tutti i worker hanno finito, così una fase non sconfina nella successiva.
+final class OpenLoopDriver implements LoadDriver {
+
+    // Oltre questo tempo dopo la fine degli arrivi gli ordini ancora in coda vengono abbandonati
+    static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+    private final OrderProcessor processor;
+    private final LoadOrders orders;
+    private final double ratePerSecond;
+    private final int threads;
+    private final Duration drainTimeout;
+
+    OpenLoopDriver(OrderProcessor processor, LoadOrders orders, double ratePerSecond, int threads) {
+        this(processor, orders, ratePerSecond, threads, DRAIN_TIMEOUT);
+    }
+
+    OpenLoopDriver(OrderProcessor processor, LoadOrders orders, double ratePerSecond, int threads,
+                   Duration drainTimeout) {
+        if (ratePerSecond <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("rate e threads devono essere positivi");
+        }
+        this.processor = processor;
+        this.orders = orders;
+        this.ratePerSecond = ratePerSecond;
+        this.threads = threads;
+        this.drainTimeout = drainTimeout;
+    }
+
+    @Override
+    public void run(Duration duration, LoadRecorder recorder) throws InterruptedException {
+        AtomicInteger workerIds = new AtomicInteger();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.NANOSECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "load-worker-" + workerIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        double intervalNanos = 1e9 / ratePerSecond;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended - end >= 0) {
+                break;
+            }
+            SimulatedLatency.pause(intended - System.nanoTime());
+            recorder.sent();
+            workers.execute(new Arrival(orders.next(), intended, recorder));
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(drainTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            // Gli ordini mai partiti sono quelli con le attese più lunghe: scartarli renderebbe il p99
+            // ottimista. Si registrano con l'attesa accumulata fino all'abbandono (un limite inferiore).
+            List<Runnable> queued = new ArrayList<>();
+            workers.getQueue().drainTo(queued);
+            long abandonedAt = System.nanoTime();
+            for (Runnable arrival : queued) {
+                recorder.dropped(((Arrival) arrival).intended, abandonedAt);
+            }
+            // quelli già in esecuzione finiscono e registrano la loro latenza vera
+            if (!workers.awaitTermination(drainTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                workers.shutdownNow();
+                throw new IllegalStateException("Worker ancora occupati " + drainTimeout.multipliedBy(2)
+                        + " dopo la fine degli arrivi: misura non valida");
+            }
+        }
+        recorder.elapsed(System.nanoTime() - start);
+    }
+
+    @Override
+    public String describe() {
+        return String.format("open loop, %.0f orders/s, %d worker threads", ratePerSecond, threads);
+    }
+
+    private final class Arrival implements Runnable {
+        final Order order;
+        final long intended;
+        final LoadRecorder recorder;
+
+        Arrival(Order order, long intended, LoadRecorder recorder) {
+            this.order = order;
+            this.intended = intended;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void run() {
+            recorder.execute(processor, order, intended);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.bench.SimulatedLatency;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Comportamento comune ai backend simulati: ogni chiamata attende una latenza estratta dalla
+// distribuzione e fallisce con probabilità errorRate
+final class SimulatedBackend {
+
+    private final String name;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    SimulatedBackend(String name, LatencyDistribution latency, double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("errorRate deve essere tra 0 e 1: " + errorRate);
+        }
+        this.name = name;
+        this.latency = latency;
+        this.errorRate = errorRate;
+    }
+
+    void call(String operation) {
+        calls.increment();
+        SimulatedLatency.pause(latency.nextNanos());
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.increment();
+            throw new IllegalStateException("Errore simulato: " + name + "." + operation);
+        }
+    }
+
+    // Azzera i contatori, es. alla fine del warmup
+    void reset() {
+        calls.reset();
+        errors.reset();
+    }
+
+    long calls() {
+        return calls.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-9s latency=%s errors=%.4f calls=%d failed=%d", name, latency, errorRate, calls(), errors());
+    }
+}
@@ -0,0 +1,64 @@
+package com.ecommerce.order.load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyDistributionTest {
+
+    @Test
+    void parseNanos_acceptsEveryUnitAndFractions() {
+        assertEquals(800, LatencyDistribution.parseNanos("800ns"));
+        assertEquals(250_000, LatencyDistribution.parseNanos("250us"));
+        assertEquals(3_000_000, LatencyDistribution.parseNanos(" 3ms "));
+        assertEquals(1_500_000_000, LatencyDistribution.parseNanos("1.5s"));
+        assertEquals(0, LatencyDistribution.parseNanos("0ms"));
+    }
+
+    @Test
+    void parseNanos_rejectsMissingUnitNegativeAndGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parseNanos("250"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parseNanos("-1ms"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parseNanos("abcms"));
+    }
+
+    @Test
+    void parse_constantAlwaysReturnsTheSameValue() {
+        LatencyDistribution distribution = LatencyDistribution.parse("const:50us");
+
+        assertEquals(50_000, distribution.nextNanos());
+        assertEquals(50_000, distribution.nextNanos());
+        assertEquals("const:50us", distribution.toString());
+    }
+
+    @Test
+    void parse_uniformStaysWithinBounds() {
+        LatencyDistribution distribution = LatencyDistribution.parse("uniform:20us-200us");
+
+        for (int i = 0; i < 10_000; i++) {
+            long value = distribution.nextNanos();
+            assertTrue(value >= 20_000 && value <= 200_000, "fuori intervallo: " + value);
+        }
+    }
+
+    @Test
+    void parse_exponentialAndLognormalAreNonNegative() {
+        LatencyDistribution exp = LatencyDistribution.parse("exp:100us");
+        LatencyDistribution lognormal = LatencyDistribution.parse("lognormal:200us,0.5");
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(exp.nextNanos() >= 0);
+            assertTrue(lognormal.nextNanos() >= 0);
+        }
+    }
+
+    @Test
+    void parse_rejectsMalformedSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("50us"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("gauss:50us"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("uniform:200us"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("uniform:200us-20us"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("lognormal:200us"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("lognormal:200us,x"));
+    }
+}
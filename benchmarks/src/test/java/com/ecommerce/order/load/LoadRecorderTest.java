@@ -0,0 +1,76 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.service.OrderProcessor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadRecorderTest {
+
+    private static SimulatedBackend backend(String name, double errorRate) {
+        return new SimulatedBackend(name, LatencyDistribution.none(), errorRate);
+    }
+
+    private static OrderProcessor processor(int stock, double declineRate, double paymentErrors) {
+        return new OrderProcessor(
+                new LoadInventoryService(backend("inventory", 0), 10, stock),
+                new LoadPaymentGateway(backend("payment", paymentErrors), declineRate),
+                new LoadShippingService(backend("shipping", 0)));
+    }
+
+    private static void run(LoadRecorder recorder, OrderProcessor processor, int count) {
+        LoadOrders orders = new LoadOrders(2, 0.0, 10, 100);
+        for (int i = 0; i < count; i++) {
+            recorder.sent();
+            recorder.execute(processor, orders.next(), System.nanoTime());
+        }
+    }
+
+    @Test
+    void execute_countsEachOutcome() {
+        LoadRecorder recorder = new LoadRecorder();
+
+        run(recorder, processor(1_000_000, 0.0, 0), 5);
+        run(recorder, processor(1_000_000, 1.0, 0), 3);
+        run(recorder, processor(0, 0.0, 0), 2);
+        run(recorder, processor(1_000_000, 0.0, 1.0), 4);
+
+        assertEquals(5, recorder.confirmed());
+        assertEquals(3, recorder.declined());
+        assertEquals(2, recorder.outOfStock());
+        assertEquals(4, recorder.failed());
+        assertEquals(14, recorder.sentCount());
+        assertEquals(14, recorder.completed());
+        assertEquals(14, recorder.responseTime.count());
+        assertEquals(14, recorder.serviceTime.count());
+        assertEquals(0, recorder.dropped());
+    }
+
+    @Test
+    void dropped_entersResponseTimeButNotCompleted() {
+        LoadRecorder recorder = new LoadRecorder();
+        run(recorder, processor(1_000_000, 0.0, 0), 1);
+        recorder.sent();
+
+        recorder.dropped(0, 2_000_000_000L);
+
+        assertEquals(2, recorder.sentCount());
+        assertEquals(1, recorder.completed());
+        assertEquals(1, recorder.dropped());
+        assertEquals(2, recorder.responseTime.count());
+        assertEquals(1, recorder.serviceTime.count());
+        assertTrue(recorder.responseTime.valueAtPercentile(99) >= 1_900_000_000L);
+    }
+
+    @Test
+    void throughput_usesCompletedOrdersOnly() {
+        LoadRecorder recorder = new LoadRecorder();
+        run(recorder, processor(1_000_000, 0.0, 0), 4);
+        recorder.sent();
+        recorder.dropped(0, 1);
+
+        recorder.elapsed(2_000_000_000L);
+
+        assertEquals(2.0, recorder.throughputPerSecond(), 1e-9);
+    }
+}
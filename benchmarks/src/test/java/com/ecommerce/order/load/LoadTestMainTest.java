@@ -0,0 +1,26 @@
+package com.ecommerce.order.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestMainTest {
+
+    @Test
+    void parse_overridesDefaults() {
+        Map<String, String> options = LoadTestMain.parse(new String[] {"--mode=closed", "--users=8"});
+
+        assertEquals("closed", options.get("mode"));
+        assertEquals("8", options.get("users"));
+        assertEquals("30s", options.get("duration"));
+    }
+
+    @Test
+    void parse_rejectsUnknownOrMalformedArguments() {
+        assertThrows(IllegalArgumentException.class, () -> LoadTestMain.parse(new String[] {"--colour=red"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestMain.parse(new String[] {"mode=open"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestMain.parse(new String[] {"--mode"}));
+    }
+}
@@ -0,0 +1,53 @@
+package com.ecommerce.order.load;
+
+import com.ecommerce.order.service.OrderProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenLoopDriverTest {
+
+    private static OrderProcessor processor(String inventoryLatency) {
+        SimulatedBackend none = new SimulatedBackend("none", LatencyDistribution.none(), 0);
+        return new OrderProcessor(
+                new LoadInventoryService(new SimulatedBackend("inventory", LatencyDistribution.parse(inventoryLatency), 0),
+                        10, 1_000_000),
+                new LoadPaymentGateway(none, 0.0),
+                new LoadShippingService(none));
+    }
+
+    @Test
+    void run_underOverload_recordsQueuedOrdersAsDropped() throws InterruptedException {
+        OpenLoopDriver driver = new OpenLoopDriver(processor("const:10ms"), new LoadOrders(1, 0.0, 10, 100),
+                1000, 1, Duration.ofMillis(100));
+        LoadRecorder recorder = new LoadRecorder();
+
+        driver.run(Duration.ofMillis(100), recorder);
+
+        assertTrue(recorder.dropped() > 0);
+        assertEquals(recorder.sentCount(), recorder.completed() + recorder.dropped());
+        assertEquals(recorder.sentCount(), recorder.responseTime.count());
+    }
+
+    @Test
+    void run_withinCapacity_completesEveryOrder() throws InterruptedException {
+        OpenLoopDriver driver = new OpenLoopDriver(processor("const:0ms"), new LoadOrders(1, 0.0, 10, 100),
+                200, 4, Duration.ofSeconds(5));
+        LoadRecorder recorder = new LoadRecorder();
+
+        driver.run(Duration.ofMillis(100), recorder);
+
+        assertEquals(0, recorder.dropped());
+        assertEquals(recorder.sentCount(), recorder.completed());
+    }
+
+    @Test
+    void run_failsWhenWorkersDoNotFinish() {
+        OpenLoopDriver driver = new OpenLoopDriver(processor("const:2s"), new LoadOrders(1, 0.0, 10, 100),
+                100, 1, Duration.ofMillis(20));
+
+        assertThrows(IllegalStateException.class, () -> driver.run(Duration.ofMillis(30), new LoadRecorder()));
+    }
+}
@@ -0,0 +1,477 @@
+package com.ecommerce.order.intake;
+
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Lettore incrementale di ordini da file NDJSON (un ordine JSON per riga), es.
+// {"id":"A-1","email":"a@example.com","vip":false,"total":129.90,"items":[{"sku":"SKU-1","quantity":2}]}
+// Il file è mappato in memoria a finestre di dimensione fissa, quindi l'heap usato non dipende
+// dalla dimensione del file. I numeri sono letti direttamente dai byte, le stringhe passano da un
+// unico buffer riutilizzato e le chiavi sono confrontate come byte, senza creare String.
+// Le chiavi sconosciute vengono ignorate, le righe vuote saltate. Una riga non valida interrompe
+// la lettura, oppure viene passata a onInvalidLine e saltata.
+public class NdjsonOrderReader {
+
+    private static final int DEFAULT_WINDOW = 64 * 1024 * 1024;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private static final byte[] KEY_ID = ascii("id");
+    private static final byte[] KEY_EMAIL = ascii("email");
+    private static final byte[] KEY_VIP = ascii("vip");
+    private static final byte[] KEY_TOTAL = ascii("total");
+    private static final byte[] KEY_TOTAL_AMOUNT = ascii("totalAmount");
+    private static final byte[] KEY_ITEMS = ascii("items");
+    private static final byte[] KEY_SKU = ascii("sku");
+    private static final byte[] KEY_QUANTITY = ascii("quantity");
+
+    private final Path file;
+    private final int windowSize;
+    private byte[] scratch = new byte[256];
+
+    private MappedByteBuffer buffer;
+    private int lineStart;
+    private int pos;
+    private int end;
+    private long lineNumber;
+
+    public NdjsonOrderReader(Path file) {
+        this(file, DEFAULT_WINDOW);
+    }
+
+    NdjsonOrderReader(Path file, int windowSize) {
+        this.file = file;
+        this.windowSize = windowSize;
+    }
+
+    // Passa ogni ordine al consumer appena letto; ritorna il numero di ordini letti.
+    // La prima riga non valida interrompe la lettura con IllegalArgumentException.
+    public long forEach(Consumer<Order> consumer) throws IOException {
+        return forEach(consumer, invalid -> {
+            throw invalid;
+        });
+    }
+
+    // Come forEach, ma le righe non valide vanno a onInvalidLine (il messaggio riporta il numero
+    // di riga) e la lettura prosegue; ritorna il numero di ordini validi letti
+    public long forEach(Consumer<Order> consumer, Consumer<IllegalArgumentException> onInvalidLine) throws IOException {
+        long count = 0;
+        lineNumber = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            while (windowStart < size) {
+                int length = (int) Math.min(windowSize, size - windowStart);
+                boolean lastWindow = windowStart + length == size;
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+
+                int lineStart = 0;
+                while (lineStart < length) {
+                    int lineEnd = indexOfNewline(lineStart, length);
+                    if (lineEnd < 0 && !lastWindow) {
+                        break; // riga spezzata tra due finestre: si rimappa da qui
+                    }
+                    int limit = lineEnd < 0 ? length : lineEnd;
+                    lineNumber++;
+                    if (!isBlank(lineStart, limit)) {
+                        Order order;
+                        try {
+                            order = parseLine(lineStart, limit);
+                        } catch (IllegalArgumentException invalid) {
+                            onInvalidLine.accept(invalid);
+                            order = null;
+                        }
+                        if (order != null) {
+                            consumer.accept(order);
+                            count++;
+                        }
+                    }
+                    lineStart = limit + 1;
+                }
+                if (lineStart == 0 && !lastWindow) {
+                    throw new IllegalArgumentException("Riga " + (lineNumber + 1) + " più lunga della finestra di "
+                            + windowSize + " byte");
+                }
+                windowStart += Math.min(lineStart, length);
+            }
+        } finally {
+            buffer = null;
+        }
+        return count;
+    }
+
+    // Comodo per file piccoli e test; per i file grandi usare forEach
+    public List<Order> readAll() throws IOException {
+        List<Order> orders = new ArrayList<>();
+        forEach(orders::add);
+        return orders;
+    }
+
+    private Order parseLine(int start, int limit) {
+        lineStart = start;
+        pos = start;
+        end = limit;
+        String id = null;
+        String email = null;
+        boolean vip = false;
+        double total = 0.0;
+        List<OrderItem> items = new ArrayList<>();
+
+        expect('{');
+        if (!tryConsume('}')) {
+            do {
+                int key = readChars();
+                expect(':');
+                if (keyIs(KEY_ID, key)) {
+                    id = readString();
+                } else if (keyIs(KEY_EMAIL, key)) {
+                    email = readString();
+                } else if (keyIs(KEY_VIP, key)) {
+                    vip = readBoolean();
+                } else if (keyIs(KEY_TOTAL, key) || keyIs(KEY_TOTAL_AMOUNT, key)) {
+                    total = readDouble();
+                } else if (keyIs(KEY_ITEMS, key)) {
+                    readItems(items);
+                } else {
+                    skipValue();
+                }
+            } while (tryConsume(','));
+            expect('}');
+        }
+        skipWhitespace();
+        if (pos != end) {
+            throw error("contenuto dopo la fine dell'oggetto");
+        }
+        if (id == null || email == null) {
+            throw error("id ed email sono obbligatori");
+        }
+        return new Order(id, new Customer(email, vip), items, total);
+    }
+
+    private void readItems(List<OrderItem> items) {
+        expect('[');
+        if (tryConsume(']')) {
+            return;
+        }
+        do {
+            String sku = null;
+            int quantity = 0;
+            expect('{');
+            if (!tryConsume('}')) {
+                do {
+                    int key = readChars();
+                    expect(':');
+                    if (keyIs(KEY_SKU, key)) {
+                        sku = readString();
+                    } else if (keyIs(KEY_QUANTITY, key)) {
+                        quantity = readInt();
+                    } else {
+                        skipValue();
+                    }
+                } while (tryConsume(','));
+                expect('}');
+            }
+            if (sku == null) {
+                throw error("articolo senza sku");
+            }
+            items.add(new OrderItem(sku, quantity));
+        } while (tryConsume(','));
+        expect(']');
+    }
+
+    private String readString() {
+        return new String(scratch, 0, readChars(), StandardCharsets.UTF_8);
+    }
+
+    // Legge una stringa JSON in scratch (UTF-8, escape risolti) e ritorna quanti byte ha scritto
+    private int readChars() {
+        expect('"');
+        int length = 0;
+        while (true) {
+            if (pos >= end) {
+                throw error("stringa non terminata");
+            }
+            byte b = buffer.get(pos++);
+            if (b == '"') {
+                return length;
+            }
+            if (b == '\\') {
+                b = unescape();
+                if (b == 0) {
+                    length = appendCodePoint(length);
+                    continue;
+                }
+            }
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, length * 2);
+            }
+            scratch[length++] = b;
+        }
+    }
+
+    // Ritorna il byte corrispondente all'escape, oppure 0 per \\uXXXX (gestito a parte)
+    private byte unescape() {
+        if (pos >= end) {
+            throw error("escape non terminato");
+        }
+        byte b = buffer.get(pos++);
+        switch (b) {
+            case '"': case '\\': case '/': return b;
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u': return 0;
+            default: throw error("escape non valido \\" + (char) b);
+        }
+    }
+
+    // Una coppia di surrogati (\\uD83D\\uDE00) forma un solo carattere; un surrogato spaiato
+    // diventa '?' come in String.getBytes, e l'escape che segue viene riletto da solo
+    private int appendCodePoint(int length) {
+        char unit = readHexUnit();
+        int codePoint = unit;
+        if (Character.isHighSurrogate(unit) && pos + 1 < end && buffer.get(pos) == '\\' && buffer.get(pos + 1) == 'u') {
+            int mark = pos;
+            pos += 2;
+            char low = readHexUnit();
+            if (Character.isLowSurrogate(low)) {
+                codePoint = Character.toCodePoint(unit, low);
+            } else {
+                pos = mark;
+            }
+        }
+        byte[] encoded = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+        if (length + encoded.length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, (length + encoded.length) * 2);
+        }
+        System.arraycopy(encoded, 0, scratch, length, encoded.length);
+        return length + encoded.length;
+    }
+
+    // Le quattro cifre esadecimali dopo \\u
+    private char readHexUnit() {
+        if (pos + 4 > end) {
+            throw error("escape \\u incompleto");
+        }
+        int unit = 0;
+        for (int i = 0; i < 4; i++) {
+            byte b = buffer.get(pos);
+            int digit = Character.digit(b, 16);
+            if (digit < 0) {
+                throw error("cifra esadecimale non valida '" + (char) (b & 0xff) + "' nell'escape \\u", pos);
+            }
+            unit = unit * 16 + digit;
+            pos++;
+        }
+        return (char) unit;
+    }
+
+    private boolean readBoolean() {
+        skipWhitespace();
+        if (matches("true")) {
+            return true;
+        }
+        if (matches("false")) {
+            return false;
+        }
+        throw error("atteso true o false");
+    }
+
+    private int readInt() {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("intero fuori intervallo");
+        }
+        return (int) value;
+    }
+
+    private long readLong() {
+        skipWhitespace();
+        boolean negative = tryConsume('-');
+        int digits = 0;
+        long value = 0;
+        while (pos < end && isDigit(buffer.get(pos))) {
+            value = value * 10 + (buffer.get(pos++) - '0');
+            digits++;
+        }
+        if (digits == 0 || digits > 18) {
+            throw error("numero non valido");
+        }
+        return negative ? -value : value;
+    }
+
+    // Mantissa intera e scala decimale, senza passare da una String
+    private double readDouble() {
+        skipWhitespace();
+        boolean negative = tryConsume('-');
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        while (pos < end && isDigit(buffer.get(pos))) {
+            mantissa = mantissa * 10 + (buffer.get(pos++) - '0');
+            digits++;
+        }
+        if (pos < end && buffer.get(pos) == '.') {
+            pos++;
+            while (pos < end && isDigit(buffer.get(pos))) {
+                mantissa = mantissa * 10 + (buffer.get(pos++) - '0');
+                digits++;
+                scale++;
+            }
+        }
+        if (digits == 0 || digits > 18) {
+            throw error("numero non valido");
+        }
+        int exponent = 0;
+        if (pos < end && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+            pos++;
+            tryConsume('+');
+            exponent = (int) readLong();
+        }
+        int power = exponent - scale;
+        double value = power >= 0
+                ? mantissa * (power < POWERS_OF_TEN.length ? POWERS_OF_TEN[power] : Math.pow(10, power))
+                : mantissa / (-power < POWERS_OF_TEN.length ? POWERS_OF_TEN[-power] : Math.pow(10, -power));
+        return negative ? -value : value;
+    }
+
+    private void skipValue() {
+        skipWhitespace();
+        if (pos >= end) {
+            throw error("valore mancante");
+        }
+        byte b = buffer.get(pos);
+        if (b == '"') {
+            readChars();
+        } else if (b == '{' || b == '[') {
+            skipContainer();
+        } else if (matches("true") || matches("false") || matches("null")) {
+            return;
+        } else {
+            readDouble();
+        }
+    }
+
+    private void skipContainer() {
+        int depth = 0;
+        do {
+            if (pos >= end) {
+                throw error("oggetto non terminato");
+            }
+            byte b = buffer.get(pos);
+            if (b == '"') {
+                readChars();
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+            pos++;
+        } while (depth > 0);
+    }
+
+    private boolean matches(String literal) {
+        if (pos + literal.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer.get(pos + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        pos += literal.length();
+        return true;
+    }
+
+    private void expect(char c) {
+        if (!tryConsume(c)) {
+            throw error("atteso '" + c + "'");
+        }
+    }
+
+    private boolean tryConsume(char c) {
+        skipWhitespace();
+        if (pos < end && buffer.get(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = buffer.get(pos);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private int indexOfNewline(int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isBlank(int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Confronta i primi length byte di scratch con la chiave attesa
+    private boolean keyIs(byte[] key, int length) {
+        if (length != key.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (scratch[i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Riga " + lineNumber + " non valida (" + file + "): " + message);
+    }
+
+    // Come sopra, con la colonna (in byte, da 1) del punto in cui la riga smette di essere valida
+    private IllegalArgumentException error(String message, int at) {
+        return error(message + " alla colonna " + (at - lineStart + 1));
+    }
+}
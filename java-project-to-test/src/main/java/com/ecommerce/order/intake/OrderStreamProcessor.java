@@ -0,0 +1,91 @@
+package com.ecommerce.order.intake;
+
+import com.ecommerce.order.metrics.OrderMetrics;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.service.OrderProcessor;
+import com.ecommerce.order.service.OutOfStockException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Backfill di ordini da NDJSON: legge in streaming, elabora con al più maxInFlight ordini
+// contemporaneamente e scrive una riga "orderId,esito" nel file di output appena ogni ordine
+// termina (quindi non nell'ordine di input). Esiti: ORDER_CONFIRMED, PAYMENT_DECLINED,
+// OUT_OF_STOCK oppure FAILED. L'heap usato dipende da maxInFlight, non dalla dimensione del file.
+public class OrderStreamProcessor {
+
+    private final OrderProcessor processor;
+    private final Executor executor;
+    private final int maxInFlight;
+
+    public OrderStreamProcessor(OrderProcessor processor, Executor executor, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight deve essere positivo: " + maxInFlight);
+        }
+        this.processor = processor;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // Ritorna il numero di ordini elaborati; una riga non valida interrompe il backfill
+    public long process(Path input, Path output) throws IOException {
+        return process(input, output, invalid -> {
+            throw invalid;
+        });
+    }
+
+    // Le righe non valide vanno a onInvalidLine e il backfill prosegue con le successive
+    public long process(Path input, Path output, Consumer<IllegalArgumentException> onInvalidLine) throws IOException {
+        Semaphore permits = new Semaphore(maxInFlight);
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            long count;
+            try {
+                count = new NdjsonOrderReader(input).forEach(order -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                String line = order.getId() + ',' + outcome(order) + '\n';
+                                synchronized (writer) {
+                                    writer.write(line);
+                                }
+                            } catch (IOException e) {
+                                writeFailure.compareAndSet(null, e);
+                            } finally {
+                                permits.release();
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        permits.release();
+                        throw e;
+                    }
+                }, onInvalidLine);
+            } finally {
+                // Attende gli ordini ancora in elaborazione prima di chiudere l'output
+                permits.acquireUninterruptibly(maxInFlight);
+            }
+            if (writeFailure.get() != null) {
+                throw writeFailure.get();
+            }
+            return count;
+        }
+    }
+
+    private String outcome(Order order) {
+        try {
+            return processor.processOrder(order);
+        } catch (OutOfStockException e) {
+            return OrderProcessor.OUT_OF_STOCK;
+        } catch (RuntimeException e) {
+            return OrderMetrics.FAILED;
+        }
+    }
+}
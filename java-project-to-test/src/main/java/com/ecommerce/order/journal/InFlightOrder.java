@@ -0,0 +1,26 @@
+package com.ecommerce.order.journal;
+
+import com.ecommerce.order.model.Order;
+
+// Ordine rimasto a metà: l'ordine registrato con STARTED, l'ultimo stadio raggiunto e l'importo
+// registrato con AUTHORIZED (NaN se l'ordine non è ancora stato autorizzato)
+public final class InFlightOrder {
+
+    private final Order order;
+    private final JournalStage stage;
+    private final double authorizedAmount;
+
+    public InFlightOrder(Order order, JournalStage stage) {
+        this(order, stage, Double.NaN);
+    }
+
+    public InFlightOrder(Order order, JournalStage stage, double authorizedAmount) {
+        this.order = order;
+        this.stage = stage;
+        this.authorizedAmount = authorizedAmount;
+    }
+
+    public Order getOrder() { return order; }
+    public JournalStage getStage() { return stage; }
+    public double getAuthorizedAmount() { return authorizedAmount; }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.order.journal;
+
+// Stadi di un ordine registrati nel journal, nell'ordine in cui OrderProcessor li attraversa.
+// COMPLETED, DECLINED e ABORTED chiudono l'ordine: non serve più in caso di ripartenza.
+// VOID_PENDING: autorizzato ma da annullare, il chiamante ha già ricevuto un errore; è in coda
+// perché il codice registrato su disco è l'ordinale.
+public enum JournalStage {
+    STARTED,
+    AUTHORIZED,
+    RESERVED,
+    COMPLETED,
+    DECLINED,
+    ABORTED,
+    VOID_PENDING;
+
+    private static final JournalStage[] VALUES = values();
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == DECLINED || this == ABORTED;
+    }
+
+    static JournalStage ofCode(int code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("Stadio sconosciuto: " + code);
+        }
+        return VALUES[code];
+    }
+}
@@ -0,0 +1,430 @@
+package com.ecommerce.order.journal;
+
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Journal append-only su segmenti mappati in memoria (journal-<n>.log, dimensione fissa).
+// Record: [int lunghezza][int CRC32][byte stadio][orderId][solo per STARTED: email, vip, totale, articoli]
+// [solo per AUTHORIZED: importo autorizzato].
+// Un record vale solo se la lunghezza è positiva e il CRC torna: una coda scritta a metà da un
+// crash viene ignorata alla rilettura.
+// Group commit: append scrive solo in memoria, un thread in background fa force() del segmento
+// ogni flushInterval se ci sono record nuovi; sync() forza subito per chi vuole la garanzia.
+// Compattazione: quando il segmento è pieno (e all'apertura) si scrivono gli ordini ancora in volo
+// in un file temporaneo che, forzato su disco, diventa il segmento successivo con un rename
+// atomico; solo dopo si cancellano i precedenti. Così la rilettura all'avvio dipende dagli ordini
+// in volo, non dalla storia, e un crash a metà compattazione non lascia un segmento parziale.
+public class MappedOrderJournal implements OrderJournal, AutoCloseable {
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(10);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushIntervalNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, InFlightOrder> live = new LinkedHashMap<>();
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    private long segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private boolean dirty;
+    private long compactions;
+    private volatile boolean closed;
+
+    private MappedOrderJournal(Path directory, int segmentSize, Duration flushInterval) {
+        if (segmentSize <= HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentSize troppo piccolo: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    public static MappedOrderJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    // Rilegge i segmenti esistenti, ricostruisce gli ordini in volo e li compatta in un segmento nuovo
+    public static MappedOrderJournal open(Path directory, int segmentSize, Duration flushInterval) throws IOException {
+        MappedOrderJournal journal = new MappedOrderJournal(directory, segmentSize, flushInterval);
+        Files.createDirectories(directory);
+        journal.deleteTemporaryFiles();
+        TreeMap<Long, Path> segments = journal.segments();
+        for (Path segment : segments.values()) {
+            journal.replay(segment);
+        }
+        journal.segmentIndex = segments.isEmpty() ? 0 : segments.lastKey();
+        journal.rollSegment();
+        journal.flusher.start();
+        return journal;
+    }
+
+    @Override
+    public void started(Order order) {
+        write(order.getId(), JournalStage.STARTED, order, Double.NaN);
+    }
+
+    @Override
+    public void authorized(String orderId, double amount) {
+        write(orderId, JournalStage.AUTHORIZED, null, amount);
+    }
+
+    @Override
+    public void append(String orderId, JournalStage stage) {
+        if (stage == JournalStage.STARTED) {
+            throw new IllegalArgumentException("STARTED richiede l'ordine completo: usare started(Order)");
+        }
+        if (stage == JournalStage.AUTHORIZED) {
+            throw new IllegalArgumentException("AUTHORIZED richiede l'importo: usare authorized(orderId, amount)");
+        }
+        write(orderId, stage, null, Double.NaN);
+    }
+
+    @Override
+    public List<InFlightOrder> inFlight() {
+        lock.lock();
+        try {
+            return new ArrayList<>(live.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Rende durevoli tutti i record scritti finora, senza aspettare il prossimo flush periodico
+    public void sync() {
+        MappedByteBuffer toForce;
+        lock.lock();
+        try {
+            ensureOpen();
+            toForce = buffer;
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+        toForce.force();
+    }
+
+    // Riscrive gli ordini in volo in un segmento nuovo e cancella i precedenti
+    public void compact() {
+        lock.lock();
+        try {
+            ensureOpen();
+            rollSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long compactions() {
+        lock.lock();
+        try {
+            return compactions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forza su disco gli ultimi record e chiude il segmento corrente
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.force();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(flusher);
+    }
+
+    private void write(String orderId, JournalStage stage, Order order, double amount) {
+        lock.lock();
+        try {
+            ensureOpen();
+            int length = encode(orderId, stage, order, amount);
+            if (HEADER_BYTES + length > segmentSize) {
+                throw new IllegalArgumentException("Record più grande del segmento: ordine " + orderId);
+            }
+            if (buffer.remaining() < HEADER_BYTES + length) {
+                rollSegment();
+                if (buffer.remaining() < HEADER_BYTES + length) {
+                    throw new IllegalStateException("Segmento pieno dopo la compattazione: troppi ordini in volo");
+                }
+                encode(orderId, stage, order, amount);
+            }
+            putScratch(buffer, length);
+            dirty = true;
+            apply(orderId, stage, order, amount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(String orderId, JournalStage stage, Order order, double amount) {
+        if (stage == JournalStage.STARTED) {
+            live.remove(orderId);
+            live.put(orderId, new InFlightOrder(order, stage));
+        } else if (stage.isTerminal()) {
+            live.remove(orderId);
+        } else if (stage == JournalStage.AUTHORIZED) {
+            live.computeIfPresent(orderId, (id, current) -> new InFlightOrder(current.getOrder(), stage, amount));
+        } else {
+            live.computeIfPresent(orderId, (id, current) ->
+                    new InFlightOrder(current.getOrder(), stage, current.getAuthorizedAmount()));
+        }
+    }
+
+    // Scrive gli ordini in volo nel segmento successivo e ci passa, poi cancella i precedenti.
+    // Il segmento nasce come file temporaneo e prende il nome definitivo solo quando è completo e
+    // su disco; se qualcosa fallisce prima si resta sul segmento corrente.
+    private void rollSegment() throws IOException {
+        long nextIndex = segmentIndex + 1;
+        Path next = segmentPath(nextIndex);
+        Path temporary = next.resolveSibling(next.getFileName() + TEMP_SUFFIX);
+        Files.deleteIfExists(temporary);
+        FileChannel nextChannel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer nextBuffer;
+        try {
+            nextBuffer = nextChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            for (InFlightOrder inFlight : live.values()) {
+                Order order = inFlight.getOrder();
+                snapshot(nextBuffer, order.getId(), JournalStage.STARTED, order, Double.NaN);
+                if (inFlight.getStage() != JournalStage.STARTED) {
+                    snapshot(nextBuffer, order.getId(), JournalStage.AUTHORIZED, null, inFlight.getAuthorizedAmount());
+                }
+                if (inFlight.getStage() != JournalStage.STARTED && inFlight.getStage() != JournalStage.AUTHORIZED) {
+                    snapshot(nextBuffer, order.getId(), inFlight.getStage(), null, Double.NaN);
+                }
+            }
+            nextBuffer.force();
+            if (channel != null) {
+                buffer.force();
+            }
+            Files.move(temporary, next, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            nextChannel.close();
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        channel = nextChannel;
+        buffer = nextBuffer;
+        segmentIndex = nextIndex;
+        dirty = false;
+        for (Map.Entry<Long, Path> segment : segments().entrySet()) {
+            if (segment.getKey() < segmentIndex) {
+                Files.deleteIfExists(segment.getValue());
+            }
+        }
+        compactions++;
+    }
+
+    private void snapshot(MappedByteBuffer target, String orderId, JournalStage stage, Order order, double amount) {
+        int length = encode(orderId, stage, order, amount);
+        if (target.remaining() < HEADER_BYTES + length) {
+            throw new IllegalStateException("Gli ordini in volo non entrano in un segmento da " + segmentSize + " byte");
+        }
+        putScratch(target, length);
+    }
+
+    private void putScratch(MappedByteBuffer target, int length) {
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        target.putInt(length);
+        target.putInt((int) crc.getValue());
+        target.put(scratch.array(), 0, length);
+    }
+
+    // Serializza il record in scratch e ritorna la lunghezza
+    private int encode(String orderId, JournalStage stage, Order order, double amount) {
+        scratch.clear();
+        ensureScratch(1);
+        scratch.put((byte) stage.ordinal());
+        putString(orderId);
+        if (stage == JournalStage.STARTED) {
+            Customer customer = order.getCustomer();
+            putString(customer.getEmail());
+            ensureScratch(1 + 8 + 4);
+            scratch.put((byte) (customer.isVip() ? 1 : 0));
+            scratch.putDouble(order.getTotalAmount());
+            scratch.putInt(order.getItems().size());
+            for (OrderItem item : order.getItems()) {
+                putString(item.getSku());
+                ensureScratch(4);
+                scratch.putInt(item.getQuantity());
+            }
+        } else if (stage == JournalStage.AUTHORIZED) {
+            ensureScratch(8);
+            scratch.putDouble(amount);
+        }
+        return scratch.position();
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Stringa troppo lunga per il journal: " + bytes.length + " byte");
+        }
+        ensureScratch(2 + bytes.length);
+        scratch.putShort((short) bytes.length);
+        scratch.put(bytes);
+    }
+
+    private void ensureScratch(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            scratch.flip();
+            larger.put(scratch);
+            scratch = larger;
+        }
+    }
+
+    private void replay(Path segment) throws IOException {
+        try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            while (data.remaining() >= HEADER_BYTES) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining()) {
+                    return;
+                }
+                ByteBuffer record = data.slice(data.position(), length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                data.position(data.position() + length);
+                decode(record);
+            }
+        }
+    }
+
+    private void decode(ByteBuffer record) {
+        JournalStage stage = JournalStage.ofCode(record.get());
+        String orderId = getString(record);
+        Order order = null;
+        double amount = Double.NaN;
+        if (stage == JournalStage.STARTED) {
+            String email = getString(record);
+            boolean vip = record.get() != 0;
+            double total = record.getDouble();
+            int count = record.getInt();
+            List<OrderItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String sku = getString(record);
+                items.add(new OrderItem(sku, record.getInt()));
+            }
+            order = new Order(orderId, new Customer(email, vip), items, total);
+        } else if (stage == JournalStage.AUTHORIZED) {
+            amount = record.getDouble();
+        }
+        apply(orderId, stage, order, amount);
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private TreeMap<Long, Path> segments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String index = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                try {
+                    segments.put(Long.parseLong(index), file);
+                } catch (NumberFormatException e) {
+                    // file estraneo con un nome simile: non è un segmento
+                }
+            }
+        }
+        return segments;
+    }
+
+    // Compattazioni interrotte da un crash: il segmento precedente è ancora integro
+    private void deleteTemporaryFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX + TEMP_SUFFIX)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal chiuso: " + directory);
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(flushIntervalNanos);
+            MappedByteBuffer toForce = null;
+            lock.lock();
+            try {
+                if (!closed && dirty) {
+                    toForce = buffer;
+                    dirty = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // force fuori dal lock: gli append continuano mentre il disco lavora
+            if (toForce != null) {
+                toForce.force();
+            }
+        }
+    }
+}
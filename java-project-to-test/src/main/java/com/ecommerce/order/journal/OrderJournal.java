@@ -0,0 +1,47 @@
+package com.ecommerce.order.journal;
+
+import com.ecommerce.order.model.Order;
+
+import java.util.List;
+
+// Registro write-ahead delle transizioni di stadio di OrderProcessor, riletto alla ripartenza
+// per riprendere o compensare gli ordini rimasti a metà.
+// Viene chiamato sul percorso caldo: le implementazioni non devono aspettare il disco a ogni record.
+public interface OrderJournal {
+
+    OrderJournal NOOP = new OrderJournal() {
+        @Override
+        public void started(Order order) {
+        }
+
+        @Override
+        public void authorized(String orderId, double amount) {
+        }
+
+        @Override
+        public void append(String orderId, JournalStage stage) {
+        }
+
+        @Override
+        public List<InFlightOrder> inFlight() {
+            return List.of();
+        }
+    };
+
+    static OrderJournal noop() {
+        return NOOP;
+    }
+
+    // Primo record dell'ordine, prima di ogni effetto sulle porte: contiene l'ordine completo
+    void started(Order order);
+
+    // AUTHORIZED con l'importo effettivamente autorizzato: è quello che recover() annulla,
+    // anche se nel frattempo le regole sono cambiate
+    void authorized(String orderId, double amount);
+
+    // Transizione successiva (RESERVED, VOID_PENDING o uno stadio terminale)
+    void append(String orderId, JournalStage stage);
+
+    // Ordini senza stadio terminale, nell'ordine in cui sono partiti
+    List<InFlightOrder> inFlight();
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.order.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Metriche tenute in memoria: istogramma di latenza per stadio, contatori per esito e per SKU
+// mancante, gauge degli ordini in elaborazione. Interrogabili o stampabili con dump().
+public class InMemoryOrderMetrics implements OrderMetrics {
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> outOfStockBySku = new ConcurrentHashMap<>();
+    private final LongAdder inFlight = new LongAdder();
+
+    public InMemoryOrderMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void orderStarted() {
+        inFlight.increment();
+    }
+
+    @Override
+    public void orderFinished(String outcome) {
+        inFlight.decrement();
+        counter(outcomes, outcome).increment();
+    }
+
+    @Override
+    public void outOfStock(String sku) {
+        counter(outOfStockBySku, sku).increment();
+    }
+
+    @Override
+    public void stageCompleted(Stage stage, long durationNanos) {
+        stages[stage.ordinal()].record(durationNanos);
+    }
+
+    public LatencyHistogram latency(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    public long outcomeCount(String outcome) {
+        LongAdder count = outcomes.get(outcome);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long outOfStockCount(String sku) {
+        LongAdder count = outOfStockBySku.get(sku);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long inFlight() {
+        return inFlight.sum();
+    }
+
+    // Riepilogo leggibile; latenze in microsecondi
+    public void dump(Appendable out) {
+        try {
+            out.append("in-flight ").append(String.valueOf(inFlight())).append('\n');
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram histogram = latency(stage);
+                out.append(String.format("stage %-17s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                        stage, histogram.count(), histogram.mean() / 1_000.0,
+                        histogram.valueAtPercentile(50) / 1_000.0, histogram.valueAtPercentile(99) / 1_000.0,
+                        histogram.valueAtPercentile(99.9) / 1_000.0, histogram.max() / 1_000.0));
+            }
+            for (Map.Entry<String, LongAdder> outcome : new TreeMap<>(outcomes).entrySet()) {
+                out.append("outcome ").append(outcome.getKey()).append(' ')
+                        .append(String.valueOf(outcome.getValue().sum())).append('\n');
+            }
+            for (Map.Entry<String, LongAdder> sku : new TreeMap<>(outOfStockBySku).entrySet()) {
+                out.append("out-of-stock ").append(sku.getKey()).append(' ')
+                        .append(String.valueOf(sku.getValue().sum())).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        dump(out);
+        return out.toString();
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String key) {
+        LongAdder counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+}
@@ -0,0 +1,33 @@
+package com.ecommerce.order.metrics;
+
+// Osservatore invocato da OrderProcessor attorno a ogni stadio.
+// Viene chiamato sul percorso caldo: le implementazioni non devono bloccare né allocare per chiamata.
+// Tutti i metodi sono no-op di default.
+public interface OrderMetrics {
+
+    // Esito registrato quando processOrder termina con un'eccezione diversa dallo stock mancante
+    String FAILED = "FAILED";
+
+    OrderMetrics NOOP = new OrderMetrics() {
+    };
+
+    static OrderMetrics noop() {
+        return NOOP;
+    }
+
+    // Un ordine entra in elaborazione (gauge in-flight +1)
+    default void orderStarted() {
+    }
+
+    // Un ordine esce dall'elaborazione (gauge in-flight -1) con ORDER_CONFIRMED, PAYMENT_DECLINED,
+    // OUT_OF_STOCK oppure FAILED
+    default void orderFinished(String outcome) {
+    }
+
+    // Lo SKU che ha fatto scartare un ordine per stock mancante
+    default void outOfStock(String sku) {
+    }
+
+    default void stageCompleted(Stage stage, long durationNanos) {
+    }
+}
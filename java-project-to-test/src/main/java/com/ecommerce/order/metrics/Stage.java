@@ -0,0 +1,9 @@
+package com.ecommerce.order.metrics;
+
+// Stadi di OrderProcessor misurati singolarmente
+public enum Stage {
+    CHECK_STOCK,
+    AUTHORIZE,
+    RESERVE_STOCK,
+    SCHEDULE_DELIVERY
+}
@@ -0,0 +1,77 @@
+package com.ecommerce.order.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Rappresentazione compatta di un ordine: importo in centesimi (niente arrotondamenti double
+// sulla soglia dei 100€) e articoli in due array paralleli di id SKU (vedi SkuDictionary)
+// e quantità, invece di una lista di OrderItem. Immutabile.
+public final class CompactOrder {
+
+    private final String id;
+    private final String customerEmail;
+    private final boolean vip;
+    private final long totalCents;
+    private final int[] skuIds;
+    private final int[] quantities;
+
+    public CompactOrder(String id, String customerEmail, boolean vip, long totalCents, int[] skuIds, int[] quantities) {
+        if (skuIds.length != quantities.length) {
+            throw new IllegalArgumentException("skuIds e quantities devono avere la stessa lunghezza");
+        }
+        this.id = id;
+        this.customerEmail = customerEmail;
+        this.vip = vip;
+        this.totalCents = totalCents;
+        this.skuIds = skuIds.clone();
+        this.quantities = quantities.clone();
+    }
+
+    public static CompactOrder from(Order order, SkuDictionary skus) {
+        List<OrderItem> items = order.getItems();
+        int[] skuIds = new int[items.size()];
+        int[] quantities = new int[items.size()];
+        for (int i = 0; i < skuIds.length; i++) {
+            skuIds[i] = skus.idOf(items.get(i).getSku());
+            quantities[i] = items.get(i).getQuantity();
+        }
+        return new CompactOrder(order.getId(), order.getCustomer().getEmail(), order.getCustomer().isVip(),
+                toCents(order.getTotalAmount()), skuIds, quantities);
+    }
+
+    public Order toOrder(SkuDictionary skus) {
+        return new Order(id, new Customer(customerEmail, vip), items(skus), toAmount(totalCents));
+    }
+
+    // Articoli come OrderItem flyweight condivisi, per le porte che vogliono una List<OrderItem>
+    public List<OrderItem> items(SkuDictionary skus) {
+        List<OrderItem> items = new ArrayList<>(skuIds.length);
+        for (int i = 0; i < skuIds.length; i++) {
+            items.add(skus.item(skuIds[i], quantities[i]));
+        }
+        return items;
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    public String getId() { return id; }
+    public String getCustomerEmail() { return customerEmail; }
+    public boolean isVip() { return vip; }
+    public long getTotalCents() { return totalCents; }
+    public int getItemCount() { return skuIds.length; }
+    public int getSkuId(int index) { return skuIds[index]; }
+    public int getQuantity(int index) { return quantities[index]; }
+
+    @Override
+    public String toString() {
+        return "CompactOrder{" + id + ", cents=" + totalCents + ", skuIds=" + Arrays.toString(skuIds)
+                + ", quantities=" + Arrays.toString(quantities) + '}';
+    }
+}
@@ -0,0 +1,70 @@
+package com.ecommerce.order.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interning degli SKU: ogni codice riceve un id int stabile e una sola istanza String canonica
+// (la prima registrata, tenuta qui e non nel pool di stringhe della JVM).
+// Tiene anche gli OrderItem flyweight per le quantità piccole (le più frequenti), così gli stessi
+// oggetti immutabili vengono condivisi da tutti gli ordini.
+public class SkuDictionary {
+
+    // Quantità 1..FLYWEIGHT_QUANTITIES hanno un OrderItem condiviso per SKU
+    static final int FLYWEIGHT_QUANTITIES = 8;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] skus = new String[64];
+    private volatile OrderItem[][] flyweights = new OrderItem[64][];
+    private int size;
+
+    public int idOf(String sku) {
+        Integer id = ids.get(sku);
+        return id != null ? id : register(sku);
+    }
+
+    public String skuOf(int id) {
+        String[] current = skus;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("Id SKU sconosciuto: " + id);
+        }
+        return current[id];
+    }
+
+    public OrderItem item(int id, int quantity) {
+        if (quantity >= 1 && quantity <= FLYWEIGHT_QUANTITIES) {
+            OrderItem[] shared = flyweights[id];
+            if (shared != null) {
+                return shared[quantity - 1];
+            }
+        }
+        return new OrderItem(skuOf(id), quantity);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private synchronized int register(String sku) {
+        Integer existing = ids.get(sku);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id == skus.length) {
+            // prima si pubblicano gli array più grandi, poi l'id nella mappa
+            flyweights = Arrays.copyOf(flyweights, id * 2);
+            skus = Arrays.copyOf(skus, id * 2);
+        }
+        String canonical = sku;
+        OrderItem[] shared = new OrderItem[FLYWEIGHT_QUANTITIES];
+        for (int q = 1; q <= FLYWEIGHT_QUANTITIES; q++) {
+            shared[q - 1] = new OrderItem(canonical, q);
+        }
+        flyweights[id] = shared;
+        skus[id] = canonical;
+        skus = skus; // scrittura volatile: rende visibili gli elementi appena scritti
+        size++;
+        ids.put(canonical, id);
+        return id;
+    }
+}
@@ -0,0 +1,196 @@
+package com.ecommerce.order.policy;
+
+import com.ecommerce.order.model.CompactOrder;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+// Regole già compilate in campi primitivi e centesimi: valutarle non alloca e non fa parsing.
+// Si costruisce da un file properties (vedi default-policy.properties per le chiavi); una chiave
+// sconosciuta, una chiave mancante o un importo non valido fanno fallire la compilazione, così un
+// refuso o un file troncato non disattivano una regola in silenzio. Le regole facoltative si
+// disattivano scrivendo la chiave con valore vuoto. Immutabile.
+public final class CompiledPolicy implements OrderPolicy {
+
+    private static final String DEFAULT_RULES = "default-policy.properties";
+    private static final Set<String> KEYS = Set.of("preauth.vip", "preauth.amount", "preauth.vip.limit",
+            "priority.vip", "priority.threshold", "priority.skus");
+    private static final CompiledPolicy DEFAULTS = loadDefaults();
+
+    private final boolean vipPreAuthorization;
+    private final long preAuthorizationCents;
+    private final double preAuthorizationAmount;
+    private final long vipPreAuthorizationLimitCents;
+    private final boolean vipPriority;
+    private final long priorityThresholdCents;
+    private final String[] prioritySkus;
+    private final Set<String> prioritySkuSet;
+
+    private CompiledPolicy(Properties rules) {
+        for (String key : rules.stringPropertyNames()) {
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Regola sconosciuta: " + key);
+            }
+        }
+        for (String key : KEYS) {
+            if (rules.getProperty(key) == null) {
+                throw new IllegalArgumentException("Regola mancante: " + key);
+            }
+        }
+        this.vipPreAuthorization = flag(rules, "preauth.vip");
+        this.preAuthorizationCents = cents(rules, "preauth.amount", 0);
+        this.preAuthorizationAmount = CompactOrder.toAmount(preAuthorizationCents);
+        this.vipPreAuthorizationLimitCents = cents(rules, "preauth.vip.limit", Long.MAX_VALUE);
+        this.vipPriority = flag(rules, "priority.vip");
+        this.priorityThresholdCents = cents(rules, "priority.threshold", Long.MAX_VALUE);
+        Set<String> skus = new LinkedHashSet<>();
+        for (String sku : rules.getProperty("priority.skus", "").split(",")) {
+            if (!sku.isBlank()) {
+                skus.add(sku.trim());
+            }
+        }
+        this.prioritySkus = skus.toArray(new String[0]);
+        this.prioritySkuSet = Set.copyOf(skus);
+        if (vipPreAuthorization && preAuthorizationCents <= 0) {
+            throw new IllegalArgumentException("preauth.amount deve essere positivo quando preauth.vip è attivo");
+        }
+    }
+
+    // Regole di specs/requirements.md: VIP pre-autorizzati per 1€, prioritari se VIP o oltre 100€
+    public static CompiledPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    public static CompiledPolicy compile(Properties rules) {
+        return new CompiledPolicy(rules);
+    }
+
+    public static CompiledPolicy load(Path file) throws IOException {
+        Properties rules = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            rules.load(reader);
+        }
+        return compile(rules);
+    }
+
+    @Override
+    public CompiledPolicy current() {
+        return this;
+    }
+
+    // true: si autorizza solo preAuthorizationAmount() con PaymentGateway.preAuthorize,
+    // false: l'importo pieno con authorize
+    public boolean preAuthorizes(boolean vip, long totalCents) {
+        return vip && vipPreAuthorization && totalCents <= vipPreAuthorizationLimitCents;
+    }
+
+    public double preAuthorizationAmount() {
+        return preAuthorizationAmount;
+    }
+
+    public long preAuthorizationCents() {
+        return preAuthorizationCents;
+    }
+
+    // Importo da autorizzare: la pre-autorizzazione oppure il totale, sempre in centesimi esatti
+    public double authorizationAmount(boolean vip, long totalCents) {
+        return preAuthorizes(vip, totalCents) ? preAuthorizationAmount : CompactOrder.toAmount(totalCents);
+    }
+
+    // items è scorsa per indice: le liste degli ordini sono ArrayList o List.of, niente Iterator
+    public boolean isPriority(boolean vip, long totalCents, List<OrderItem> items) {
+        if (vip && vipPriority) {
+            return true;
+        }
+        if (totalCents > priorityThresholdCents) {
+            return true;
+        }
+        if (prioritySkus.length > 0) {
+            for (int i = 0, n = items.size(); i < n; i++) {
+                if (prioritySkuSet.contains(items.get(i).getSku())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Stesse decisioni a partire da un Order: il totale passa in centesimi con CompactOrder.toCents,
+    // così un Order e la sua forma compatta, con qualunque versione delle regole, vengono sempre
+    // instradati e autorizzati allo stesso modo (100.004 sono 10000 centesimi: non oltre 100€,
+    // autorizzati per 100.00).
+    public boolean preAuthorizes(Order order) {
+        return preAuthorizes(order.getCustomer().isVip(), CompactOrder.toCents(order.getTotalAmount()));
+    }
+
+    public double authorizationAmount(Order order) {
+        return authorizationAmount(order.getCustomer().isVip(), CompactOrder.toCents(order.getTotalAmount()));
+    }
+
+    public boolean isPriority(Order order) {
+        return isPriority(order.getCustomer().isVip(), CompactOrder.toCents(order.getTotalAmount()), order.getItems());
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledPolicy{preauth.vip=" + vipPreAuthorization + ", preauth.amount=" + preAuthorizationCents
+                + "c, preauth.vip.limit=" + limit(vipPreAuthorizationLimitCents) + ", priority.vip=" + vipPriority
+                + ", priority.threshold=" + limit(priorityThresholdCents)
+                + ", priority.skus=" + String.join(",", prioritySkus) + '}';
+    }
+
+    private static String limit(long cents) {
+        return cents == Long.MAX_VALUE ? "-" : cents + "c";
+    }
+
+    private static boolean flag(Properties rules, String key) {
+        String value = rules.getProperty(key, "false").trim();
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("Valore non valido per " + key + ": " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    // Euro con al più due decimali -> centesimi esatti; valore vuoto -> absent
+    private static long cents(Properties rules, String key, long absent) {
+        String value = rules.getProperty(key, "").trim();
+        if (value.isEmpty()) {
+            return absent;
+        }
+        try {
+            long cents = new BigDecimal(value).movePointRight(2).longValueExact();
+            if (cents < 0) {
+                throw new IllegalArgumentException("Importo negativo per " + key + ": " + value);
+            }
+            return cents;
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Importo non valido per " + key + ": " + value, e);
+        }
+    }
+
+    private static CompiledPolicy loadDefaults() {
+        Properties rules = new Properties();
+        try (InputStream in = CompiledPolicy.class.getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IllegalStateException("Regole di default mancanti: " + DEFAULT_RULES);
+            }
+            rules.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compile(rules);
+    }
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.order.policy;
+
+// Sorgente delle regole di autorizzazione e priorità usate da OrderProcessor.
+// current() viene chiamato per ogni ordine: deve solo leggere un riferimento, le decisioni
+// vanno prese sulla stessa CompiledPolicy così un ricaricamento non mescola due versioni.
+public interface OrderPolicy {
+
+    CompiledPolicy current();
+}
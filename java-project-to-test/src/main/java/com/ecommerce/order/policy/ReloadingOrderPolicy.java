@@ -0,0 +1,104 @@
+package com.ecommerce.order.policy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Regole lette da un file properties e ricaricate a caldo quando il file cambia (data di
+// modifica o dimensione). Un thread in background controlla il file ogni checkInterval e, se
+// è cambiato, compila le nuove regole e le pubblica con una sola scrittura volatile: gli ordini
+// in corso non aspettano mai il ricaricamento. Un file non valido viene scartato e restano in
+// vigore le regole precedenti; il file deve essere valido alla creazione.
+// Ogni versione decide solo in centesimi (vedi CompiledPolicy), quindi una soglia ricaricata vale
+// con la stessa precisione per un Order e per la sua forma compatta.
+// Un file troncato (chiavi mancanti) viene scartato, ma un valore tagliato a metà può sembrare
+// valido: il file va sostituito con un rename atomico, non riscritto sul posto.
+public class ReloadingOrderPolicy implements OrderPolicy, AutoCloseable {
+
+    private final Path file;
+    private final long checkIntervalNanos;
+    private final Thread watcher;
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile CompiledPolicy current;
+    private volatile Exception lastFailure;
+    private volatile boolean closed;
+    // versione del file da cui viene current (o l'ultimo tentativo fallito), usata solo dal watcher
+    private long loadedModified;
+    private long loadedSize;
+
+    public ReloadingOrderPolicy(Path file, Duration checkInterval) throws IOException {
+        this.file = file;
+        this.checkIntervalNanos = checkInterval.toNanos();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        this.current = CompiledPolicy.load(file);
+        this.loadedModified = attributes.lastModifiedTime().toMillis();
+        this.loadedSize = attributes.size();
+        this.watcher = new Thread(this::watchLoop, "policy-reloader");
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+    }
+
+    @Override
+    public CompiledPolicy current() {
+        return current;
+    }
+
+    // Ricarica se il file è cambiato dall'ultimo controllo; true se sono in vigore regole nuove
+    public synchronized boolean reloadIfChanged() {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // file momentaneamente assente (es. sostituito con un rename): si riprova al giro dopo
+            return false;
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (modified == loadedModified && attributes.size() == loadedSize) {
+            return false;
+        }
+        loadedModified = modified;
+        loadedSize = attributes.size();
+        try {
+            current = CompiledPolicy.load(file);
+            reloads.increment();
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            lastFailure = e;
+            failures.increment();
+            return false;
+        }
+    }
+
+    public long reloads() {
+        return reloads.sum();
+    }
+
+    // Ricaricamenti scartati perché il file non era valido
+    public long failures() {
+        return failures.sum();
+    }
+
+    public Exception lastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(watcher);
+    }
+
+    private void watchLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(checkIntervalNanos);
+            if (!closed) {
+                reloadIfChanged();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ecommerce.order.ports;
+import com.ecommerce.order.model.OrderItem;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Variante non bloccante di InventoryService: le future si completano quando il backend risponde.
+public interface AsyncInventoryService {
+    CompletableFuture<Map<String, Boolean>> checkAvailabilityAsync(List<OrderItem> items);
+    CompletableFuture<Void> reserveStockAsync(List<OrderItem> items);
+
+    // Adatta un InventoryService bloccante eseguendo ogni chiamata sull'executor indicato
+    static AsyncInventoryService of(InventoryService inventory, Executor executor) {
+        return new AsyncInventoryService() {
+            @Override
+            public CompletableFuture<Map<String, Boolean>> checkAvailabilityAsync(List<OrderItem> items) {
+                return CompletableFuture.supplyAsync(() -> inventory.checkAvailability(items), executor);
+            }
+
+            @Override
+            public CompletableFuture<Void> reserveStockAsync(List<OrderItem> items) {
+                return CompletableFuture.runAsync(() -> inventory.reserveStock(items), executor);
+            }
+        };
+    }
+}
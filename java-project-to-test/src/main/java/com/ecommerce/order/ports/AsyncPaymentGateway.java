@@ -0,0 +1,54 @@
+package com.ecommerce.order.ports;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Variante non bloccante di PaymentGateway
+public interface AsyncPaymentGateway {
+    // Si completa con true se il pagamento è autorizzato, false se declinato
+    CompletableFuture<Boolean> authorizeAsync(double amount, String customerEmail);
+
+    // Vedi PaymentGateway.preAuthorize
+    default CompletableFuture<Boolean> preAuthorizeAsync(double amount, String customerEmail) {
+        return authorizeAsync(amount, customerEmail);
+    }
+
+    // Vedi PaymentGateway.authorizeOrder: di default l'id viene ignorato
+    default CompletableFuture<Boolean> authorizeOrderAsync(String orderId, double amount, String customerEmail,
+                                                           boolean preAuthorization) {
+        return preAuthorization ? preAuthorizeAsync(amount, customerEmail) : authorizeAsync(amount, customerEmail);
+    }
+
+    // Vedi PaymentGateway.voidAuthorization: di default non è supportato
+    default CompletableFuture<Void> voidAuthorizationAsync(String orderId, double amount, String customerEmail) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException(
+                "voidAuthorizationAsync non supportato da " + getClass().getName()));
+    }
+
+    // Adatta un PaymentGateway bloccante eseguendo ogni chiamata sull'executor indicato
+    static AsyncPaymentGateway of(PaymentGateway payment, Executor executor) {
+        return new AsyncPaymentGateway() {
+            @Override
+            public CompletableFuture<Boolean> authorizeAsync(double amount, String customerEmail) {
+                return CompletableFuture.supplyAsync(() -> payment.authorize(amount, customerEmail), executor);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> preAuthorizeAsync(double amount, String customerEmail) {
+                return CompletableFuture.supplyAsync(() -> payment.preAuthorize(amount, customerEmail), executor);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> authorizeOrderAsync(String orderId, double amount, String customerEmail,
+                                                                  boolean preAuthorization) {
+                return CompletableFuture.supplyAsync(
+                        () -> payment.authorizeOrder(orderId, amount, customerEmail, preAuthorization), executor);
+            }
+
+            @Override
+            public CompletableFuture<Void> voidAuthorizationAsync(String orderId, double amount, String customerEmail) {
+                return CompletableFuture.runAsync(() -> payment.voidAuthorization(orderId, amount, customerEmail), executor);
+            }
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.order.ports;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Variante non bloccante di ShippingService
+public interface AsyncShippingService {
+    CompletableFuture<Void> scheduleDeliveryAsync(String orderId, boolean priority);
+
+    // Adatta uno ShippingService bloccante eseguendo ogni chiamata sull'executor indicato
+    static AsyncShippingService of(ShippingService shipping, Executor executor) {
+        return (orderId, priority) ->
+                CompletableFuture.runAsync(() -> shipping.scheduleDelivery(orderId, priority), executor);
+    }
+}
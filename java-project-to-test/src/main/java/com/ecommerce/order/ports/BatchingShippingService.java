@@ -0,0 +1,253 @@
+package com.ecommerce.order.ports;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// ShippingService che accumula le richieste e le invia al corriere in blocco (scheduleDeliveries).
+// Un blocco parte quando una coda raggiunge maxBatchSize oppure quando la richiesta più vecchia
+// supera il suo ritardo massimo; le prioritarie hanno un ritardo più stretto delle standard.
+// Quando un blocco parte, dopo le prioritarie si aggiungono le standard in attesa fino a riempirlo.
+// Al più capacity richieste in attesa: oltre, chi chiama resta bloccato finché non si libera posto.
+// scheduleDelivery e scheduleDeliveries aspettano l'invio del blocco che contiene le loro richieste
+// e ne rilanciano l'errore, così OrderProcessor non conferma (né chiude nel journal) un ordine che
+// il corriere non ha accettato. Il raggruppamento quindi avviene tra chiamanti concorrenti, e ognuno
+// paga fino al ritardo massimo della sua coda. submit non aspetta: restituisce la future che si
+// completa all'invio effettivo, e chi la usa deve gestirne l'errore.
+public class BatchingShippingService implements ShippingService, AutoCloseable {
+
+    private final ShippingService delegate;
+    private final int capacity;
+    private final int maxBatchSize;
+    private final long priorityMaxDelayNanos;
+    private final long standardMaxDelayNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Pending> priorityQueue = new ArrayDeque<>();
+    private final ArrayDeque<Pending> standardQueue = new ArrayDeque<>();
+    private final Thread flusher;
+    private boolean closed;
+
+    public BatchingShippingService(ShippingService delegate, int capacity, int maxBatchSize,
+                                   Duration priorityMaxDelay, Duration standardMaxDelay) {
+        if (capacity <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("capacity e maxBatchSize devono essere positivi");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.priorityMaxDelayNanos = priorityMaxDelay.toNanos();
+        this.standardMaxDelayNanos = standardMaxDelay.toNanos();
+        this.flusher = new Thread(this::flushLoop, "shipping-batcher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void scheduleDelivery(String orderId, boolean priority) {
+        await(submit(orderId, priority));
+    }
+
+    @Override
+    public void scheduleDeliveries(Map<String, Boolean> deliveries) {
+        List<CompletableFuture<Void>> sent = new ArrayList<>(deliveries.size());
+        for (Map.Entry<String, Boolean> delivery : deliveries.entrySet()) {
+            sent.add(submit(delivery.getKey(), delivery.getValue()));
+        }
+        for (CompletableFuture<Void> completion : sent) {
+            await(completion);
+        }
+    }
+
+    // Accoda la richiesta (bloccando se la coda è piena); la future si completa quando il corriere
+    // l'ha accettata, o eccezionalmente se l'invio del blocco fallisce
+    public CompletableFuture<Void> submit(String orderId, boolean priority) {
+        Pending pending = new Pending(orderId, priority, System.nanoTime());
+        lock.lock();
+        try {
+            while (size() >= capacity && !closed) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new IllegalStateException("BatchingShippingService chiuso, spedizione rifiutata: " + orderId);
+            }
+            (priority ? priorityQueue : standardQueue).addLast(pending);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return pending.completion;
+    }
+
+    public int pending() {
+        lock.lock();
+        try {
+            return size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Smette di accettare richieste, invia tutte quelle in coda e attende il thread di invio
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Comunque termini il thread (close o interruzione), nessuno deve restare ad aspettare un invio
+    // che non avverrà più: le richieste in coda falliscono e le nuove vengono rifiutate
+    private void flushLoop() {
+        try {
+            while (true) {
+                List<Pending> batch = nextBatch();
+                if (batch == null) {
+                    return;
+                }
+                send(batch);
+            }
+        } finally {
+            abandonPending();
+        }
+    }
+
+    private void abandonPending() {
+        lock.lock();
+        try {
+            closed = true;
+            failAll(priorityQueue);
+            failAll(standardQueue);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void failAll(ArrayDeque<Pending> queue) {
+        for (Pending pending = queue.pollFirst(); pending != null; pending = queue.pollFirst()) {
+            pending.completion.completeExceptionally(new IllegalStateException(
+                    "Thread di invio terminato, spedizione non inviata: " + pending.orderId));
+        }
+    }
+
+    // Attende che un blocco sia dovuto e lo estrae; null quando chiuso e vuoto o se interrotto
+    private List<Pending> nextBatch() {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed && size() == 0) {
+                    return null;
+                }
+                long now = System.nanoTime();
+                long priorityWait = waitNanos(priorityQueue, priorityMaxDelayNanos, now);
+                long standardWait = waitNanos(standardQueue, standardMaxDelayNanos, now);
+                if (closed || priorityWait <= 0 || standardWait <= 0) {
+                    List<Pending> batch = new ArrayList<>(Math.min(maxBatchSize, size()));
+                    drain(priorityQueue, batch);
+                    drain(standardQueue, batch);
+                    notFull.signalAll();
+                    return batch;
+                }
+                long wait = Math.min(priorityWait, standardWait);
+                if (wait == Long.MAX_VALUE) {
+                    changed.awaitUninterruptibly();
+                } else {
+                    try {
+                        changed.awaitNanos(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        Map<String, Boolean> deliveries = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            deliveries.merge(pending.orderId, pending.priority, Boolean::logicalOr);
+        }
+        try {
+            delegate.scheduleDeliveries(deliveries);
+            for (Pending pending : batch) {
+                pending.completion.complete(null);
+            }
+        } catch (RuntimeException | Error e) {
+            for (Pending pending : batch) {
+                pending.completion.completeExceptionally(e);
+            }
+        }
+    }
+
+    // join() che rilancia l'errore del corriere invece della CompletionException
+    private static void await(CompletableFuture<Void> completion) {
+        try {
+            completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Nanosecondi prima che la coda vada svuotata: 0 se piena o scaduta, MAX_VALUE se vuota
+    private long waitNanos(ArrayDeque<Pending> queue, long maxDelayNanos, long now) {
+        if (queue.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        if (queue.size() >= maxBatchSize) {
+            return 0;
+        }
+        return Math.max(0, queue.peekFirst().enqueuedAt + maxDelayNanos - now);
+    }
+
+    private void drain(ArrayDeque<Pending> queue, List<Pending> batch) {
+        while (batch.size() < maxBatchSize && !queue.isEmpty()) {
+            batch.add(queue.pollFirst());
+        }
+    }
+
+    private int size() {
+        return priorityQueue.size() + standardQueue.size();
+    }
+
+    private static final class Pending {
+        final String orderId;
+        final boolean priority;
+        final long enqueuedAt;
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        Pending(String orderId, boolean priority, long enqueuedAt) {
+            this.orderId = orderId;
+            this.priority = priority;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
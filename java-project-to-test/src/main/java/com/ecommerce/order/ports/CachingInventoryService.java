@@ -0,0 +1,203 @@
+package com.ecommerce.order.ports;
+import com.ecommerce.order.model.OrderItem;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Cache read-through davanti a un InventoryService.
+// La porta risponde solo sì/no, quindi per ogni SKU si tengono due limiti: la quantità più alta
+// già vista disponibile e la più bassa già vista non disponibile. Le richieste dentro i limiti
+// sono servite dalla cache, le altre vanno al servizio (in blocco, per checkAvailability).
+// Le voci scadono dopo il TTL e le meno usate vengono scartate oltre maxEntries.
+// reserveStock va sempre al servizio autorevole e invalida gli SKU prenotati: una risposta
+// positiva dalla cache non può quindi mai far prenotare merce che il servizio rifiuterebbe.
+public class CachingInventoryService implements InventoryService {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final InventoryService delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<String, Bounds> entries;
+    // Conta le invalidazioni per gruppo di SKU (hash): una risposta arrivata durante un'invalidazione
+    // del suo SKU non viene memorizzata, mentre le prenotazioni sugli altri SKU non la scartano.
+    // Due SKU nello stesso gruppo possono solo causare uno scarto in più, mai una risposta vecchia.
+    private final AtomicLongArray invalidations = new AtomicLongArray(GENERATION_STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingInventoryService(InventoryService delegate, int maxEntries, Duration ttl) {
+        this(delegate, maxEntries, ttl, System::nanoTime);
+    }
+
+    CachingInventoryService(InventoryService delegate, int maxEntries, Duration ttl, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries deve essere positivo: " + maxEntries);
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bounds> eldest) {
+                return size() > CachingInventoryService.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public boolean checkStock(String sku, int quantity) {
+        Boolean cached = lookup(sku, quantity);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.get(stripe(sku));
+        boolean available = delegate.checkStock(sku, quantity);
+        record(sku, quantity, available, generation);
+        return available;
+    }
+
+    @Override
+    public Map<String, Boolean> checkAvailability(List<OrderItem> items) {
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            requested.merge(item.getSku(), item.getQuantity(), Integer::sum);
+        }
+
+        Map<String, Boolean> availability = new LinkedHashMap<>();
+        List<OrderItem> missed = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : requested.entrySet()) {
+            Boolean cached = lookup(entry.getKey(), entry.getValue());
+            availability.put(entry.getKey(), cached);
+            if (cached == null) {
+                missed.add(new OrderItem(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (missed.isEmpty()) {
+            return availability;
+        }
+
+        long[] generations = new long[missed.size()];
+        for (int i = 0; i < generations.length; i++) {
+            generations[i] = invalidations.get(stripe(missed.get(i).getSku()));
+        }
+        Map<String, Boolean> fetched = delegate.checkAvailability(missed);
+        for (int i = 0; i < generations.length; i++) {
+            OrderItem item = missed.get(i);
+            Boolean available = fetched.get(item.getSku());
+            if (available == null) {
+                // non verificato (il servizio si è fermato al primo mancante): niente da memorizzare
+                availability.remove(item.getSku());
+                continue;
+            }
+            availability.put(item.getSku(), available);
+            record(item.getSku(), item.getQuantity(), available, generations[i]);
+        }
+        return availability;
+    }
+
+    @Override
+    public void reserveStock(List<OrderItem> items) {
+        try {
+            delegate.reserveStock(items);
+        } finally {
+            for (OrderItem item : items) {
+                invalidate(item.getSku());
+            }
+        }
+    }
+
+    public void invalidate(String sku) {
+        invalidations.incrementAndGet(stripe(sku));
+        synchronized (entries) {
+            entries.remove(sku);
+        }
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            invalidations.incrementAndGet(i);
+        }
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Boolean lookup(String sku, int quantity) {
+        long now = clock.getAsLong();
+        Boolean answer = null;
+        synchronized (entries) {
+            Bounds bounds = entries.get(sku);
+            if (bounds != null && now - bounds.expiresAt >= 0) {
+                entries.remove(sku);
+            } else if (bounds != null) {
+                if (quantity <= bounds.available) {
+                    answer = Boolean.TRUE;
+                } else if (quantity >= bounds.unavailable) {
+                    answer = Boolean.FALSE;
+                }
+            }
+        }
+        if (answer == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return answer;
+    }
+
+    private void record(String sku, int quantity, boolean available, long generation) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            if (invalidations.get(stripe(sku)) != generation) {
+                return;
+            }
+            Bounds bounds = entries.get(sku);
+            if (bounds == null || now - bounds.expiresAt >= 0) {
+                bounds = new Bounds(now + ttlNanos);
+                entries.put(sku, bounds);
+            }
+            if (available) {
+                bounds.available = Math.max(bounds.available, quantity);
+            } else {
+                bounds.unavailable = Math.min(bounds.unavailable, quantity);
+            }
+        }
+    }
+
+    private static int stripe(String sku) {
+        return Math.floorMod(sku.hashCode(), GENERATION_STRIPES);
+    }
+
+    private static final class Bounds {
+        // Quantità più alta nota come disponibile / più bassa nota come non disponibile
+        int available = 0;
+        int unavailable = Integer.MAX_VALUE;
+        final long expiresAt;
+
+        Bounds(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
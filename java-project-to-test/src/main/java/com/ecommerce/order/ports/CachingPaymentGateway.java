@@ -0,0 +1,193 @@
+package com.ecommerce.order.ports;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Decorator opzionale di PaymentGateway per le pre-autorizzazioni VIP.
+// Una preAuthorize riuscita viene ricordata per email (e importo) per la finestra indicata;
+// le richieste identiche concorrenti condividono un'unica chiamata al gateway.
+// Si memorizzano solo gli esiti positivi, con al più maxEntries clienti (LRU).
+// authorize (importo pieno) passa sempre al gateway e non viene mai memorizzata.
+// Solo l'ordine che ha fatto la chiamata al gateway possiede la pre-autorizzazione: per gli ordini
+// serviti dalla cache o accodati a una chiamata in corso (al più maxEntries ricordati) voidAuthorization
+// toglie solo la voce dalla cache, senza annullare la pre-autorizzazione dell'ordine proprietario.
+public class CachingPaymentGateway implements PaymentGateway {
+
+    private final PaymentGateway delegate;
+    private final long windowNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Map<String, PreAuthorization> approved;
+    // orderId serviti dalla cache o da una chiamata altrui -> email; protetta dal lock di approved
+    private final Map<String, String> borrowed;
+    private final ConcurrentHashMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CachingPaymentGateway(PaymentGateway delegate, Duration window, int maxEntries) {
+        this(delegate, window, maxEntries, System::nanoTime);
+    }
+
+    CachingPaymentGateway(PaymentGateway delegate, Duration window, int maxEntries, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries deve essere positivo: " + maxEntries);
+        }
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.approved = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreAuthorization> eldest) {
+                return size() > CachingPaymentGateway.this.maxEntries;
+            }
+        };
+        this.borrowed = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > CachingPaymentGateway.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public boolean authorize(double amount, String customerEmail) {
+        return delegate.authorize(amount, customerEmail);
+    }
+
+    @Override
+    public boolean preAuthorize(double amount, String customerEmail) {
+        return cachedPreAuthorize(null, amount, customerEmail);
+    }
+
+    @Override
+    public boolean authorizeOrder(String orderId, double amount, String customerEmail, boolean preAuthorization) {
+        return preAuthorization
+                ? cachedPreAuthorize(orderId, amount, customerEmail)
+                : delegate.authorizeOrder(orderId, amount, customerEmail, false);
+    }
+
+    // Il void va al gateway solo per la pre-autorizzazione che l'ordine ha ottenuto davvero;
+    // in entrambi i casi la voce del cliente esce dalla cache
+    @Override
+    public void voidAuthorization(String orderId, double amount, String customerEmail) {
+        boolean wasBorrowed;
+        synchronized (approved) {
+            wasBorrowed = borrowed.remove(orderId) != null;
+            approved.remove(customerEmail);
+        }
+        if (!wasBorrowed) {
+            delegate.voidAuthorization(orderId, amount, customerEmail);
+        }
+    }
+
+    // orderId null: chiamata senza ordine (preAuthorize a due argomenti), niente da ricordare
+    private boolean cachedPreAuthorize(String orderId, double amount, String customerEmail) {
+        if (isApproved(amount, customerEmail)) {
+            hits.increment();
+            borrow(orderId, customerEmail);
+            return true;
+        }
+
+        // Si accodano solo le richieste identiche (stessa email e stesso importo)
+        String request = amount + "|" + customerEmail;
+        CompletableFuture<Boolean> mine = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inFlight.putIfAbsent(request, mine);
+        if (running != null) {
+            coalesced.increment();
+            boolean result = join(running);
+            if (result) {
+                borrow(orderId, customerEmail);
+            }
+            return result;
+        }
+
+        misses.increment();
+        try {
+            boolean result = orderId == null
+                    ? delegate.preAuthorize(amount, customerEmail)
+                    : delegate.authorizeOrder(orderId, amount, customerEmail, true);
+            if (result) {
+                synchronized (approved) {
+                    approved.put(customerEmail, new PreAuthorization(amount, clock.getAsLong() + windowNanos));
+                }
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(request, mine);
+        }
+    }
+
+    private void borrow(String orderId, String customerEmail) {
+        if (orderId != null) {
+            synchronized (approved) {
+                borrowed.put(orderId, customerEmail);
+            }
+        }
+    }
+
+    public void invalidate(String customerEmail) {
+        synchronized (approved) {
+            approved.remove(customerEmail);
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    private boolean isApproved(double amount, String customerEmail) {
+        long now = clock.getAsLong();
+        synchronized (approved) {
+            PreAuthorization preAuthorization = approved.get(customerEmail);
+            if (preAuthorization == null) {
+                return false;
+            }
+            if (now - preAuthorization.expiresAt >= 0) {
+                approved.remove(customerEmail);
+                return false;
+            }
+            return preAuthorization.amount == amount;
+        }
+    }
+
+    private static boolean join(CompletableFuture<Boolean> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class PreAuthorization {
+        final double amount;
+        final long expiresAt;
+
+        PreAuthorization(double amount, long expiresAt) {
+            this.amount = amount;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
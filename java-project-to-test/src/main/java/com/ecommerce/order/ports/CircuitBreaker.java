@@ -0,0 +1,98 @@
+package com.ecommerce.order.ports;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Circuit breaker a tre stati. Dopo failureThreshold errori consecutivi si apre e rifiuta le
+// chiamate per openDuration; poi lascia passare una sola chiamata di prova (HALF_OPEN):
+// se riesce si richiude, altrimenti si riapre per un altro openDuration.
+// Ogni chiamata ammessa riceve un Permit e va chiusa con onSuccess, onFailure o release.
+// Le transizioni sono compare-and-set dallo stato atteso: l'esito tardivo di una chiamata
+// partita prima di un cambio di stato non lo annulla.
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // REJECTED: la chiamata non deve partire; PROBE: è la chiamata di prova di HALF_OPEN
+    public enum Permit { REJECTED, CALL, PROBE }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final LongAdder trips = new LongAdder();
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+    }
+
+    // In HALF_OPEN solo il primo chiamante ottiene la prova
+    public Permit acquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return Permit.CALL;
+        }
+        if (current == State.OPEN && clock.getAsLong() - openedAt.get() >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return Permit.PROBE;
+        }
+        return Permit.REJECTED;
+    }
+
+    public boolean tryAcquire() {
+        return acquire() != Permit.REJECTED;
+    }
+
+    public void onSuccess(Permit permit) {
+        if (permit == Permit.PROBE) {
+            consecutiveFailures.set(0);
+            state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+        } else if (permit == Permit.CALL && state.get() == State.CLOSED) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    public void onFailure(Permit permit) {
+        if (permit == Permit.PROBE) {
+            trip(State.HALF_OPEN);
+        } else if (permit == Permit.CALL && state.get() == State.CLOSED
+                && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            trip(State.CLOSED);
+        }
+    }
+
+    // La chiamata è finita senza un esito da contare (non partita, interrotta, errore di dominio).
+    // Una prova torna OPEN con la scadenza già passata, così il prossimo chiamante ne ottiene un'altra.
+    public void release(Permit permit) {
+        if (permit == Permit.PROBE) {
+            state.compareAndSet(State.HALF_OPEN, State.OPEN);
+        }
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    public long trips() {
+        return trips.sum();
+    }
+
+    private void trip(State from) {
+        openedAt.set(clock.getAsLong());
+        if (state.compareAndSet(from, State.OPEN)) {
+            trips.increment();
+        }
+    }
+}
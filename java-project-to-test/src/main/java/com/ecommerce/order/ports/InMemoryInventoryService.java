@@ -0,0 +1,157 @@
+package com.ecommerce.order.ports;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.service.OutOfStockException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Inventario in memoria per i tenant con un solo magazzino.
+// Ogni SKU riceve un indice int alla registrazione; le giacenze stanno in un AtomicIntegerArray
+// con un contatore per cache line, così core diversi non si contendono la stessa linea.
+// checkStock è una singola lettura volatile (wait-free, niente boxing né allocazioni).
+// Le scritture passano da un lock per gruppo di SKU: reserveStock prende i lock di tutti gli SKU
+// dell'ordine sempre in ordine crescente (niente deadlock), verifica ogni articolo e solo se c'è
+// tutto scala le giacenze. L'esito è tutto-o-niente anche sotto contesa: una prenotazione che
+// fallisce non tocca nulla, quindi nessun lettore o ordine concorrente vede giacenze ridotte
+// da una prenotazione poi annullata.
+public class InMemoryInventoryService implements InventoryService {
+
+    // 16 int = 64 byte: un contatore per cache line
+    private static final int STRIDE = 16;
+    // SKU diversi possono condividere un lock: limita la memoria con capacità molto grandi
+    private static final int MAX_LOCKS = 1024;
+
+    private final ConcurrentHashMap<String, Integer> skuIndex = new ConcurrentHashMap<>();
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final AtomicIntegerArray counts;
+    private final ReentrantLock[] locks;
+    private final int capacity;
+
+    public InMemoryInventoryService(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity deve essere positiva: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counts = new AtomicIntegerArray(capacity * STRIDE);
+        this.locks = new ReentrantLock[Math.min(capacity, MAX_LOCKS)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // Aggiunge (o toglie, se negativa) giacenza; registra lo SKU se è nuovo
+    public void addStock(String sku, int quantity) {
+        int index = register(sku);
+        int slot = index * STRIDE;
+        ReentrantLock lock = locks[index % locks.length];
+        lock.lock();
+        try {
+            long updated = (long) counts.get(slot) + quantity;
+            if (updated < 0 || updated > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Giacenza fuori intervallo per " + sku + ": " + updated);
+            }
+            counts.set(slot, (int) updated);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int available(String sku) {
+        Integer index = skuIndex.get(sku);
+        return index == null ? 0 : counts.get(index * STRIDE);
+    }
+
+    @Override
+    public boolean checkStock(String sku, int quantity) {
+        Integer index = skuIndex.get(sku);
+        return index != null && counts.get(index * STRIDE) >= quantity;
+    }
+
+    @Override
+    public void reserveStock(List<OrderItem> items) {
+        // Somma le quantità per indice SKU (in long: la somma di più articoli può superare un int),
+        // così ogni contatore viene toccato una volta sola
+        int[] indexes = new int[items.size()];
+        long[] quantities = new long[items.size()];
+        int size = 0;
+        for (OrderItem item : items) {
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantità non valida per " + item.getSku() + ": " + item.getQuantity());
+            }
+            Integer index = skuIndex.get(item.getSku());
+            if (index == null) {
+                throw new OutOfStockException(item.getSku());
+            }
+            int i = 0;
+            while (i < size && indexes[i] != index) {
+                i++;
+            }
+            if (i == size) {
+                indexes[size++] = index;
+            }
+            quantities[i] += item.getQuantity();
+        }
+
+        int[] held = lockAll(indexes, size);
+        try {
+            for (int i = 0; i < size; i++) {
+                if (counts.get(indexes[i] * STRIDE) < quantities[i]) {
+                    throw new OutOfStockException(skuAt(indexes[i]));
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                int slot = indexes[i] * STRIDE;
+                counts.set(slot, (int) (counts.get(slot) - quantities[i]));
+            }
+        } finally {
+            for (int i = held.length - 1; i >= 0; i--) {
+                locks[held[i]].unlock();
+            }
+        }
+    }
+
+    // Prende i lock degli SKU indicati in ordine crescente, una volta sola per lock condiviso;
+    // ritorna i lock presi
+    private int[] lockAll(int[] indexes, int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = indexes[i] % locks.length;
+        }
+        Arrays.sort(order);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || order[distinct - 1] != order[i]) {
+                order[distinct++] = order[i];
+            }
+        }
+        int[] held = Arrays.copyOf(order, distinct);
+        for (int lock : held) {
+            locks[lock].lock();
+        }
+        return held;
+    }
+
+    private int register(String sku) {
+        return skuIndex.computeIfAbsent(sku, key -> {
+            int index = nextIndex.getAndIncrement();
+            if (index >= capacity) {
+                nextIndex.decrementAndGet();
+                throw new IllegalStateException("Capacità inventario esaurita (" + capacity + " SKU): " + key);
+            }
+            return index;
+        });
+    }
+
+    // Solo per i messaggi d'errore, fuori dal percorso veloce
+    private String skuAt(int index) {
+        for (var entry : skuIndex.entrySet()) {
+            if (entry.getValue() == index) {
+                return entry.getKey();
+            }
+        }
+        return "#" + index;
+    }
+}
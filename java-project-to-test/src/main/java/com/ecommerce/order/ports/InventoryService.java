@@ -1,8 +1,32 @@
 package com.ecommerce.order.ports;
 import com.ecommerce.order.model.OrderItem;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface InventoryService {
     boolean checkStock(String sku, int quantity);
     void reserveStock(List<OrderItem> items);
-}
\ No newline at end of file
+
+    // Verifica in blocco la disponibilità di tutti gli articoli: una sola chiamata al backend
+    // invece di una per OrderItem. Ritorna la disponibilità per SKU, nell'ordine degli articoli;
+    // le quantità dello stesso SKU vengono sommate.
+    // L'implementazione di default ricade su checkStock per ogni SKU, così gli adapter esistenti
+    // continuano a funzionare senza modifiche, e come prima si ferma al primo SKU mancante:
+    // gli SKU successivi non compaiono nella mappa (per chi la legge, non disponibili).
+    default Map<String, Boolean> checkAvailability(List<OrderItem> items) {
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            requested.merge(item.getSku(), item.getQuantity(), Integer::sum);
+        }
+        Map<String, Boolean> availability = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : requested.entrySet()) {
+            boolean available = checkStock(entry.getKey(), entry.getValue());
+            availability.put(entry.getKey(), available);
+            if (!available) {
+                break;
+            }
+        }
+        return availability;
+    }
+}
@@ -3,4 +3,27 @@ package com.ecommerce.order.ports;
 public interface PaymentGateway {
     // Ritorna true se il pagamento è autorizzato, false se declinato
     boolean authorize(double amount, String customerEmail);
-}
\ No newline at end of file
+
+    // Pre-autorizzazione simbolica di verifica del cliente (es. 1€ per i VIP), distinta
+    // dall'autorizzazione dell'importo pieno così un decorator può trattarla a parte.
+    // Di default è una normale authorize.
+    default boolean preAuthorize(double amount, String customerEmail) {
+        return authorize(amount, customerEmail);
+    }
+
+    // Variante legata all'ordine, usata da OrderProcessor: orderId è il riferimento con cui
+    // voidAuthorization indicherà questa autorizzazione, preAuthorization sceglie tra preAuthorize
+    // e authorize. Di default l'id viene ignorato.
+    default boolean authorizeOrder(String orderId, double amount, String customerEmail, boolean preAuthorization) {
+        return preAuthorization ? preAuthorize(amount, customerEmail) : authorize(amount, customerEmail);
+    }
+
+    // Annulla (void) l'autorizzazione concessa per orderId e non più necessaria, es. quando è stata
+    // chiesta in parallelo al controllo stock e uno SKU risulta mancante, o alla ripresa dopo un crash.
+    // Importo ed email sono quelli dell'autorizzazione, per i gateway che non tengono l'id.
+    // Di default non è supportato: la modalità speculativa di OrderProcessor lo richiede alla
+    // configurazione, negli altri casi l'ordine resta da annullare nel journal (VOID_PENDING).
+    default void voidAuthorization(String orderId, double amount, String customerEmail) {
+        throw new UnsupportedOperationException("voidAuthorization non supportato da " + getClass().getName());
+    }
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.order.ports;
+
+// Una porta non ha risposto entro la scadenza oppure il suo circuito è aperto
+public class PortUnavailableException extends RuntimeException {
+
+    public PortUnavailableException(String message) {
+        super(message);
+    }
+
+    public PortUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
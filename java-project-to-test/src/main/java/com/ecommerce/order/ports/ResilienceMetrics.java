@@ -0,0 +1,37 @@
+package com.ecommerce.order.ports;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Contatori di un decorator Resilient*: scadenze superate, chiamate rifiutate a circuito aperto,
+// richieste duplicate (hedge) partite e quelle che hanno risposto per prime, risposte arrivate
+// dopo la scadenza e annulli di autorizzazioni tardive non riusciti
+public class ResilienceMetrics {
+
+    final LongAdder timeouts = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder hedges = new LongAdder();
+    final LongAdder hedgeWins = new LongAdder();
+    final LongAdder lateResults = new LongAdder();
+    final LongAdder lateVoidFailures = new LongAdder();
+    private final CircuitBreaker circuitBreaker;
+
+    ResilienceMetrics(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public long timeouts() { return timeouts.sum(); }
+    public long rejected() { return rejected.sum(); }
+    public long hedges() { return hedges.sum(); }
+    public long hedgeWins() { return hedgeWins.sum(); }
+    public long lateResults() { return lateResults.sum(); }
+    public long lateVoidFailures() { return lateVoidFailures.sum(); }
+    public long trips() { return circuitBreaker.trips(); }
+    public CircuitBreaker.State circuitState() { return circuitBreaker.state(); }
+
+    @Override
+    public String toString() {
+        return "ResilienceMetrics{timeouts=" + timeouts() + ", rejected=" + rejected() + ", hedges=" + hedges()
+                + ", hedgeWins=" + hedgeWins() + ", lateResults=" + lateResults()
+                + ", lateVoidFailures=" + lateVoidFailures() + ", trips=" + trips() + ", circuit=" + circuitState() + '}';
+    }
+}
@@ -0,0 +1,72 @@
+package com.ecommerce.order.ports;
+
+import com.ecommerce.order.service.OutOfStockException;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+// Configurazione immutabile dei decorator Resilient*: scadenza per chiamata, ritardo della
+// richiesta duplicata (hedge) per le letture idempotenti, soglia e durata del circuito aperto
+// e quali eccezioni della porta contano come guasti per il circuito.
+public final class ResiliencePolicy {
+
+    private final Duration timeout;
+    private final Duration hedgeDelay;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Predicate<Throwable> failure;
+
+    private ResiliencePolicy(Duration timeout, Duration hedgeDelay, int failureThreshold, Duration openDuration,
+                             Predicate<Throwable> failure) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold deve essere positivo: " + failureThreshold);
+        }
+        this.timeout = timeout;
+        this.hedgeDelay = hedgeDelay;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.failure = failure;
+    }
+
+    // 2s di scadenza, nessun hedge, circuito aperto per 30s dopo 5 errori consecutivi,
+    // guasti tutte le eccezioni tranne le risposte di dominio (vedi isTechnicalFailure)
+    public static ResiliencePolicy defaults() {
+        return new ResiliencePolicy(Duration.ofSeconds(2), null, 5, Duration.ofSeconds(30),
+                ResiliencePolicy::isTechnicalFailure);
+    }
+
+    // Le scadenze contano sempre; delle altre eccezioni non contano solo le risposte di dominio
+    // note, che passano al chiamante senza toccare il circuito: prodotto esaurito
+    // (OutOfStockException) e richiesta non valida (IllegalArgumentException). Tutto il resto,
+    // comprese le RuntimeException generiche di un client HTTP o DB degradato, è un guasto.
+    public static boolean isTechnicalFailure(Throwable error) {
+        return !(error instanceof OutOfStockException || error instanceof IllegalArgumentException);
+    }
+
+    public ResiliencePolicy withTimeout(Duration timeout) {
+        return new ResiliencePolicy(timeout, hedgeDelay, failureThreshold, openDuration, failure);
+    }
+
+    // null disattiva l'hedging
+    public ResiliencePolicy withHedgeDelay(Duration hedgeDelay) {
+        return new ResiliencePolicy(timeout, hedgeDelay, failureThreshold, openDuration, failure);
+    }
+
+    public ResiliencePolicy withCircuitBreaker(int failureThreshold, Duration openDuration) {
+        return new ResiliencePolicy(timeout, hedgeDelay, failureThreshold, openDuration, failure);
+    }
+
+    // Per le porte i cui guasti tecnici hanno tipi propri (es. l'eccezione di un client HTTP)
+    public ResiliencePolicy withFailurePredicate(Predicate<Throwable> failure) {
+        return new ResiliencePolicy(timeout, hedgeDelay, failureThreshold, openDuration, failure);
+    }
+
+    public Duration getTimeout() { return timeout; }
+    public Duration getHedgeDelay() { return hedgeDelay; }
+    public int getFailureThreshold() { return failureThreshold; }
+    public Duration getOpenDuration() { return openDuration; }
+
+    public boolean isFailure(Throwable error) {
+        return failure.test(error);
+    }
+}
@@ -0,0 +1,154 @@
+package com.ecommerce.order.ports;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Esecuzione condivisa dai decorator Resilient*: circuito, scadenza e hedging opzionale.
+// La chiamata gira sull'executor; chi chiama aspetta al più la scadenza. Una chiamata scaduta
+// non viene interrotta: l'executor va dimensionato anche per le chiamate lente in corso.
+final class ResilientCalls {
+
+    private final String port;
+    private final ResiliencePolicy policy;
+    private final Executor executor;
+    private final CircuitBreaker circuitBreaker;
+    private final ResilienceMetrics metrics;
+
+    ResilientCalls(String port, ResiliencePolicy policy, Executor executor) {
+        this.port = port;
+        this.policy = policy;
+        this.executor = executor;
+        this.circuitBreaker = new CircuitBreaker(policy.getFailureThreshold(), policy.getOpenDuration());
+        this.metrics = new ResilienceMetrics(circuitBreaker);
+    }
+
+    ResilienceMetrics metrics() {
+        return metrics;
+    }
+
+    <T> T call(String operation, Supplier<T> call) {
+        return execute(operation, call, false, null);
+    }
+
+    // Come call, ma l'esito di una chiamata già scaduta per il chiamante va a lateResult (sul thread
+    // dell'executor), es. per annullare un'autorizzazione concessa quando nessuno la aspettava più.
+    // Ogni esito va o al chiamante o a lateResult, mai a entrambi né a nessuno dei due.
+    <T> T call(String operation, Supplier<T> call, Consumer<? super T> lateResult) {
+        return execute(operation, call, false, lateResult);
+    }
+
+    // Solo per operazioni idempotenti: dopo hedgeDelay senza risposta parte una seconda richiesta
+    <T> T hedgedCall(String operation, Supplier<T> call) {
+        return execute(operation, call, policy.getHedgeDelay() != null, null);
+    }
+
+    private <T> T execute(String operation, Supplier<T> call, boolean hedged, Consumer<? super T> lateResult) {
+        CircuitBreaker.Permit permit = circuitBreaker.acquire();
+        if (permit == CircuitBreaker.Permit.REJECTED) {
+            metrics.rejected.increment();
+            throw new PortUnavailableException(port + "." + operation + ": circuito aperto");
+        }
+        boolean recorded = false;
+        // 0 in attesa, 1 esito consegnato al chiamante, 2 chiamante andato via (scadenza)
+        AtomicInteger handoff = new AtomicInteger();
+        Supplier<T> tracked = lateResult == null ? call : () -> {
+            T value = call.get();
+            if (!handoff.compareAndSet(0, 1)) {
+                metrics.lateResults.increment();
+                lateResult.accept(value);
+            }
+            return value;
+        };
+        try {
+            CompletableFuture<T> primary = CompletableFuture.supplyAsync(tracked, executor);
+            CompletableFuture<T> result = hedged ? hedge(primary, call) : primary;
+            try {
+                T value = result.get(policy.getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+                circuitBreaker.onSuccess(permit);
+                recorded = true;
+                return value;
+            } catch (TimeoutException e) {
+                if (lateResult != null && !handoff.compareAndSet(0, 2)) {
+                    // l'esito è arrivato proprio alla scadenza ed è già del chiamante
+                    T value = primary.join();
+                    circuitBreaker.onSuccess(permit);
+                    recorded = true;
+                    return value;
+                }
+                // cancel evita solo che parta una richiesta ancora in coda: un CompletableFuture non
+                // interrompe il thread, quindi una chiamata già partita occupa l'executor fino alla fine
+                result.cancel(true);
+                primary.cancel(true);
+                metrics.timeouts.increment();
+                circuitBreaker.onFailure(permit);
+                recorded = true;
+                throw new PortUnavailableException(port + "." + operation + ": nessuna risposta entro " + policy.getTimeout(), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (policy.isFailure(cause)) {
+                    circuitBreaker.onFailure(permit);
+                    recorded = true;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new PortUnavailableException(port + "." + operation + ": errore", cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.cancel(true);
+                throw new PortUnavailableException(port + "." + operation + ": interrotto", e);
+            }
+        } finally {
+            // chiamata rifiutata dall'executor, interrotta o errore di dominio: la prova va restituita
+            if (!recorded) {
+                circuitBreaker.release(permit);
+            }
+        }
+    }
+
+    // Completa con la prima risposta riuscita; fallisce solo quando falliscono tutte le richieste partite
+    private <T> CompletableFuture<T> hedge(CompletableFuture<T> primary, Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        primary.whenComplete((value, error) -> settle(result, outstanding, value, error, false));
+
+        Executor afterDelay = CompletableFuture.delayedExecutor(
+                policy.getHedgeDelay().toNanos(), TimeUnit.NANOSECONDS, executor);
+        CompletableFuture.runAsync(() -> {
+            if (result.isDone() || primary.isDone()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            metrics.hedges.increment();
+            CompletableFuture.supplyAsync(call, executor)
+                    .whenComplete((value, error) -> settle(result, outstanding, value, error, true));
+        }, afterDelay);
+        return result;
+    }
+
+    private <T> void settle(CompletableFuture<T> result, AtomicInteger outstanding, T value, Throwable error,
+                            boolean fromHedge) {
+        if (error == null) {
+            // conta la vittoria prima di completare, così è già visibile a chi aspetta il risultato
+            synchronized (result) {
+                if (result.isDone()) {
+                    return;
+                }
+                if (fromHedge) {
+                    metrics.hedgeWins.increment();
+                }
+                result.complete(value);
+            }
+        } else if (outstanding.decrementAndGet() == 0) {
+            result.completeExceptionally(error instanceof CompletionException
+                    && error.getCause() != null ? error.getCause() : error);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ecommerce.order.ports;
+
+import com.ecommerce.order.model.OrderItem;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Decorator con scadenza e circuit breaker su ogni chiamata al magazzino. Le letture
+// (checkStock, checkAvailability) sono idempotenti e possono essere duplicate (hedge);
+// reserveStock no: una seconda richiesta prenoterebbe due volte.
+public class ResilientInventoryService implements InventoryService {
+
+    private final InventoryService delegate;
+    private final ResilientCalls calls;
+
+    public ResilientInventoryService(InventoryService delegate, ResiliencePolicy policy, Executor executor) {
+        this.delegate = delegate;
+        this.calls = new ResilientCalls("InventoryService", policy, executor);
+    }
+
+    @Override
+    public boolean checkStock(String sku, int quantity) {
+        return calls.hedgedCall("checkStock", () -> delegate.checkStock(sku, quantity));
+    }
+
+    @Override
+    public Map<String, Boolean> checkAvailability(List<OrderItem> items) {
+        return calls.hedgedCall("checkAvailability", () -> delegate.checkAvailability(items));
+    }
+
+    @Override
+    public void reserveStock(List<OrderItem> items) {
+        calls.call("reserveStock", () -> {
+            delegate.reserveStock(items);
+            return null;
+        });
+    }
+
+    public ResilienceMetrics metrics() {
+        return calls.metrics();
+    }
+}
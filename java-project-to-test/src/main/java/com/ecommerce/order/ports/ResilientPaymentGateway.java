@@ -0,0 +1,62 @@
+package com.ecommerce.order.ports;
+
+import java.util.concurrent.Executor;
+
+// Decorator con scadenza e circuit breaker sul gateway di pagamento. Nessun hedge:
+// un'autorizzazione duplicata impegnerebbe due volte l'importo sulla carta del cliente.
+// Allo scadere del timeout la chiamata al gateway può ancora concludersi: un'autorizzazione
+// legata all'ordine (authorizeOrder) concessa in ritardo viene annullata subito con
+// voidAuthorization, perché il chiamante l'ha già considerata fallita. Le authorize/preAuthorize
+// senza orderId non si possono annullare e restano al gateway.
+public class ResilientPaymentGateway implements PaymentGateway {
+
+    private final PaymentGateway delegate;
+    private final ResilientCalls calls;
+
+    public ResilientPaymentGateway(PaymentGateway delegate, ResiliencePolicy policy, Executor executor) {
+        this.delegate = delegate;
+        this.calls = new ResilientCalls("PaymentGateway", policy, executor);
+    }
+
+    @Override
+    public boolean authorize(double amount, String customerEmail) {
+        return calls.call("authorize", () -> delegate.authorize(amount, customerEmail));
+    }
+
+    @Override
+    public boolean preAuthorize(double amount, String customerEmail) {
+        return calls.call("preAuthorize", () -> delegate.preAuthorize(amount, customerEmail));
+    }
+
+    @Override
+    public boolean authorizeOrder(String orderId, double amount, String customerEmail, boolean preAuthorization) {
+        return calls.call(preAuthorization ? "preAuthorize" : "authorize",
+                () -> delegate.authorizeOrder(orderId, amount, customerEmail, preAuthorization),
+                approved -> {
+                    if (approved) {
+                        voidLateAuthorization(orderId, amount, customerEmail);
+                    }
+                });
+    }
+
+    // Senza scadenza né circuito: gira già sul thread della chiamata tardiva e non ha un chiamante
+    private void voidLateAuthorization(String orderId, double amount, String customerEmail) {
+        try {
+            delegate.voidAuthorization(orderId, amount, customerEmail);
+        } catch (RuntimeException e) {
+            calls.metrics().lateVoidFailures.increment();
+        }
+    }
+
+    @Override
+    public void voidAuthorization(String orderId, double amount, String customerEmail) {
+        calls.call("voidAuthorization", () -> {
+            delegate.voidAuthorization(orderId, amount, customerEmail);
+            return null;
+        });
+    }
+
+    public ResilienceMetrics metrics() {
+        return calls.metrics();
+    }
+}
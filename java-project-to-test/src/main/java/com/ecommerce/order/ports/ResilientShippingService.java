@@ -0,0 +1,36 @@
+package com.ecommerce.order.ports;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Decorator con scadenza e circuit breaker sul corriere; le spedizioni non vengono duplicate
+public class ResilientShippingService implements ShippingService {
+
+    private final ShippingService delegate;
+    private final ResilientCalls calls;
+
+    public ResilientShippingService(ShippingService delegate, ResiliencePolicy policy, Executor executor) {
+        this.delegate = delegate;
+        this.calls = new ResilientCalls("ShippingService", policy, executor);
+    }
+
+    @Override
+    public void scheduleDelivery(String orderId, boolean priority) {
+        calls.call("scheduleDelivery", () -> {
+            delegate.scheduleDelivery(orderId, priority);
+            return null;
+        });
+    }
+
+    @Override
+    public void scheduleDeliveries(Map<String, Boolean> deliveries) {
+        calls.call("scheduleDeliveries", () -> {
+            delegate.scheduleDeliveries(deliveries);
+            return null;
+        });
+    }
+
+    public ResilienceMetrics metrics() {
+        return calls.metrics();
+    }
+}
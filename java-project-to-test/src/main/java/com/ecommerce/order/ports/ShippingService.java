@@ -1,5 +1,15 @@
 package com.ecommerce.order.ports;
 
+import java.util.Map;
+
 public interface ShippingService {
     void scheduleDelivery(String orderId, boolean priority);
-}
\ No newline at end of file
+
+    // Invio in blocco: orderId -> priorità. Di default una chiamata per ordine,
+    // gli adapter con un'API bulk del corriere possono farne una sola.
+    default void scheduleDeliveries(Map<String, Boolean> deliveries) {
+        for (Map.Entry<String, Boolean> delivery : deliveries.entrySet()) {
+            scheduleDelivery(delivery.getKey(), delivery.getValue());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.policy.CompiledPolicy;
+import com.ecommerce.order.policy.OrderPolicy;
+import com.ecommerce.order.ports.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+// Variante non bloccante di OrderProcessor: nessuno stadio tiene occupato il thread chiamante.
+// Le regole (OrderPolicy, di default quelle di specs/requirements.md) restano le stesse;
+// la prenotazione parte solo dopo un'autorizzazione riuscita. Lo stock mancante completa la future con una IllegalStateException.
+// Come in OrderProcessor, se prenotazione o spedizione falliscono dopo l'autorizzazione questa viene
+// annullata (voidAuthorizationAsync) prima di completare la future con l'errore originale.
+// close() chiude solo l'executor creato dal costruttore senza executor; quelli passati restano al chiamante.
+public class AsyncOrderProcessor implements AutoCloseable {
+
+    private final AsyncInventoryService inventory;
+    private final AsyncPaymentGateway payment;
+    private final AsyncShippingService shipping;
+    private final ExecutorService ownedExecutor;
+    private OrderPolicy policy = CompiledPolicy.defaults();
+
+    public AsyncOrderProcessor(AsyncInventoryService inventory, AsyncPaymentGateway payment, AsyncShippingService shipping) {
+        this(inventory, payment, shipping, null);
+    }
+
+    // Adatta porte bloccanti: ogni chiamata gira sull'executor indicato
+    public AsyncOrderProcessor(InventoryService inventory, PaymentGateway payment, ShippingService shipping, Executor executor) {
+        this(AsyncInventoryService.of(inventory, executor),
+                AsyncPaymentGateway.of(payment, executor),
+                AsyncShippingService.of(shipping, executor),
+                null);
+    }
+
+    // Come sopra, con l'executor di default (virtual thread quando disponibili), chiuso da close()
+    public AsyncOrderProcessor(InventoryService inventory, PaymentGateway payment, ShippingService shipping) {
+        this(inventory, payment, shipping, OrderExecutors.newDefaultExecutor(), true);
+    }
+
+    private AsyncOrderProcessor(InventoryService inventory, PaymentGateway payment, ShippingService shipping,
+                                ExecutorService executor, boolean owned) {
+        this(AsyncInventoryService.of(inventory, executor),
+                AsyncPaymentGateway.of(payment, executor),
+                AsyncShippingService.of(shipping, executor),
+                owned ? executor : null);
+    }
+
+    private AsyncOrderProcessor(AsyncInventoryService inventory, AsyncPaymentGateway payment,
+                                AsyncShippingService shipping, ExecutorService ownedExecutor) {
+        this.inventory = inventory;
+        this.payment = payment;
+        this.shipping = shipping;
+        this.ownedExecutor = ownedExecutor;
+    }
+
+    // Come OrderProcessor.withPolicy
+    public AsyncOrderProcessor withPolicy(OrderPolicy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    public CompletableFuture<String> processOrderAsync(Order order) {
+        CompiledPolicy rules = policy.current();
+        double amount = rules.authorizationAmount(order);
+        String email = order.getCustomer().getEmail();
+        // 1. Controllo Stock
+        return inventory.checkAvailabilityAsync(order.getItems())
+                .thenCompose(availability -> {
+                    String missingSku = OrderProcessor.firstMissingSku(order.getItems(), availability);
+                    if (missingSku != null) {
+                        return CompletableFuture.failedFuture(new OutOfStockException(missingSku));
+                    }
+                    // 2. Controllo Pagamento
+                    return payment.authorizeOrderAsync(order.getId(), amount, email, rules.preAuthorizes(order));
+                })
+                .thenCompose(authorized -> {
+                    if (!authorized) {
+                        return CompletableFuture.completedFuture(OrderProcessor.PAYMENT_DECLINED);
+                    }
+                    // 3. Conferma Ordine, 4. Spedizione
+                    return inventory.reserveStockAsync(order.getItems())
+                            .thenCompose(ignored -> shipping.scheduleDeliveryAsync(order.getId(),
+                                    rules.isPriority(order)))
+                            .handle((ignored, failure) -> failure == null
+                                    ? CompletableFuture.completedFuture(OrderProcessor.ORDER_CONFIRMED)
+                                    : voidAuthorization(order.getId(), amount, email, unwrap(failure)))
+                            .thenCompose(Function.identity());
+                });
+    }
+
+    // Smette di accettare task sull'executor di default; gli ordini già avviati terminano normalmente
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    // Compensazione come in OrderProcessor: la future fallisce comunque con cause, gli errori
+    // dell'annullo restano soppressi. Lo stock eventualmente già prenotato non viene rilasciato.
+    private CompletableFuture<String> voidAuthorization(String orderId, double amount, String email, Throwable cause) {
+        CompletableFuture<Void> voided;
+        try {
+            voided = payment.voidAuthorizationAsync(orderId, amount, email);
+        } catch (RuntimeException e) {
+            voided = CompletableFuture.failedFuture(e);
+        }
+        return voided.handle((ignored, voidFailure) -> {
+            if (voidFailure != null) {
+                cause.addSuppressed(unwrap(voidFailure));
+            }
+            throw cause instanceof CompletionException ? (CompletionException) cause : new CompletionException(cause);
+        });
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+}
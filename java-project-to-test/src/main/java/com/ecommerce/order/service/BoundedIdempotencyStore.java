@@ -0,0 +1,51 @@
+package com.ecommerce.order.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// IdempotencyStore in memoria con al massimo maxEntries esiti completati: oltre il limite
+// vengono scartati i meno recenti. Le elaborazioni ancora in corso non vengono mai scartate,
+// altrimenti un duplicato concorrente ripartirebbe da capo.
+public class BoundedIdempotencyStore implements IdempotencyStore {
+
+    private final int maxEntries;
+    private final Map<String, CompletableFuture<String>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public BoundedIdempotencyStore(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries deve essere positivo: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public synchronized CompletableFuture<String> putIfAbsent(String orderId, CompletableFuture<String> pending) {
+        CompletableFuture<String> existing = entries.get(orderId);
+        if (existing != null) {
+            return existing;
+        }
+        entries.put(orderId, pending);
+        evictCompleted();
+        return null;
+    }
+
+    @Override
+    public synchronized void remove(String orderId, CompletableFuture<String> pending) {
+        entries.remove(orderId, pending);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictCompleted() {
+        Iterator<CompletableFuture<String>> eldestFirst = entries.values().iterator();
+        while (entries.size() > maxEntries && eldestFirst.hasNext()) {
+            if (eldestFirst.next().isDone()) {
+                eldestFirst.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.order.service;
+
+import java.util.concurrent.CompletableFuture;
+
+// Esiti per orderId usati da OrderProcessor per non rielaborare lo stesso ordine.
+// Dietro un'interfaccia per poterlo sostituire in futuro con uno persistente.
+public interface IdempotencyStore {
+
+    // Registra l'elaborazione in corso per orderId e ritorna null, oppure ritorna quella già
+    // presente (in corso o completata) senza registrare nulla
+    CompletableFuture<String> putIfAbsent(String orderId, CompletableFuture<String> pending);
+
+    // Dimentica orderId, es. quando l'elaborazione è fallita e un nuovo tentativo deve ripartire
+    void remove(String orderId, CompletableFuture<String> pending);
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.order.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executor di default per la pipeline asincrona.
+// Su Java 21+ usa un virtual thread per task; il progetto compila per Java 17, quindi il metodo
+// viene cercato a runtime e, se manca, si ricade su un pool di thread daemon on-demand.
+public final class OrderExecutors {
+
+    private OrderExecutors() {
+    }
+
+    public static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return newDaemonCachedExecutor();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Impossibile creare l'executor di default", t);
+        }
+    }
+
+    private static ExecutorService newDaemonCachedExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "order-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
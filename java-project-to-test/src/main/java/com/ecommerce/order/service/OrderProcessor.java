@@ -1,14 +1,44 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.order.journal.InFlightOrder;
+import com.ecommerce.order.journal.JournalStage;
+import com.ecommerce.order.journal.OrderJournal;
+import com.ecommerce.order.model.CompactOrder;
 import com.ecommerce.order.model.Order;
 import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.model.SkuDictionary;
+import com.ecommerce.order.metrics.OrderMetrics;
+import com.ecommerce.order.metrics.Stage;
+import com.ecommerce.order.policy.CompiledPolicy;
+import com.ecommerce.order.policy.OrderPolicy;
 import com.ecommerce.order.ports.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 public class OrderProcessor {
 
+    public static final String ORDER_CONFIRMED = "ORDER_CONFIRMED";
+    public static final String PAYMENT_DECLINED = "PAYMENT_DECLINED";
+    public static final String OUT_OF_STOCK = "OUT_OF_STOCK";
+
     private final InventoryService inventory;
     private final PaymentGateway payment;
     private final ShippingService shipping;
+    private Executor speculativeExecutor;
+    private OrderMetrics metrics = OrderMetrics.noop();
+    private IdempotencyStore idempotencyStore;
+    private OrderJournal journal = OrderJournal.noop();
+    private OrderPolicy policy = CompiledPolicy.defaults();
 
     public OrderProcessor(InventoryService inventory, PaymentGateway payment, ShippingService shipping) {
         this.inventory = inventory;
@@ -16,30 +46,605 @@ public class OrderProcessor {
         this.shipping = shipping;
     }
 
+    // Modalità opzionale: l'autorizzazione parte sull'executor indicato in parallelo al controllo
+    // stock, così la latenza è il massimo dei due invece della somma. Se manca uno SKU
+    // l'autorizzazione già concessa viene annullata con PaymentGateway.voidAuthorization, che il
+    // gateway deve quindi implementare.
+    public OrderProcessor withSpeculativeAuthorization(Executor executor) {
+        if (executor != null && !supportsVoid(payment)) {
+            throw new IllegalArgumentException("La modalità speculativa richiede un PaymentGateway con voidAuthorization: "
+                    + payment.getClass().getName());
+        }
+        this.speculativeExecutor = executor;
+        return this;
+    }
+
+    // Controllo fatto una volta alla configurazione: voidAuthorization ridefinito rispetto al default
+    private static boolean supportsVoid(PaymentGateway payment) {
+        try {
+            return payment.getClass().getMethod("voidAuthorization", String.class, double.class, String.class)
+                    .getDeclaringClass() != PaymentGateway.class;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Latenza per stadio, esiti e ordini in elaborazione; di default nessuna metrica
+    public OrderProcessor withMetrics(OrderMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    // Elaborazione idempotente per Order.getId(): un duplicato concorrente aspetta l'elaborazione
+    // già in corso, uno successivo riceve l'esito memorizzato senza toccare le porte.
+    // Un'elaborazione fallita prima di chiamare il gateway di pagamento non ha impegnato nulla e non
+    // viene memorizzata (es. inventario irraggiungibile): il nuovo tentativo la riesegue. Dopo la
+    // chiamata l'errore resta memorizzato, perché autorizzazione o prenotazione possono essere andate
+    // a buon fine: i nuovi tentativi ricevono una IllegalStateException che ha per causa l'errore
+    // originale. Fa eccezione lo stock mancante senza errori di annullo, che si può sempre riprovare.
+    public OrderProcessor withIdempotencyStore(IdempotencyStore idempotencyStore) {
+        this.idempotencyStore = idempotencyStore;
+        return this;
+    }
+
+    // Regole di autorizzazione e priorità, es. le soglie di un mercato o un ReloadingOrderPolicy.
+    // Di default quelle di specs/requirements.md.
+    public OrderProcessor withPolicy(OrderPolicy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    // Registra ogni transizione (STARTED, AUTHORIZED, RESERVED, poi COMPLETED/DECLINED/ABORTED)
+    // così che recover() possa riprendere gli ordini rimasti a metà dopo un crash.
+    // Un ordine autorizzato che fallisce mentre il chiamante è ancora lì passa da VOID_PENDING:
+    // il chiamante riceve l'errore e l'ordine non verrà più evaso, solo annullato.
+    public OrderProcessor withJournal(OrderJournal journal) {
+        this.journal = journal;
+        return this;
+    }
+
+    // Da chiamare all'avvio, prima di accettare ordini nuovi. Per ogni ordine in volo nel journal:
+    // - STARTED: non si sa se l'autorizzazione è arrivata al gateway, l'ordine viene chiuso come ABORTED
+    //   e va ripresentato dal chiamante;
+    // - AUTHORIZED: se lo stock c'è ancora si prenota e si spedisce, altrimenti si annulla
+    //   l'autorizzazione (ABORTED);
+    // - RESERVED: manca solo la spedizione;
+    // - VOID_PENDING: il chiamante ha già ricevuto un errore, si completa solo l'annullo (ABORTED).
+    // Ritorna lo stadio raggiunto per orderId; se una porta fallisce l'ordine resta in volo
+    // al suo stadio per il prossimo tentativo.
+    public Map<String, JournalStage> recover() {
+        Map<String, JournalStage> recovered = new LinkedHashMap<>();
+        for (InFlightOrder inFlight : journal.inFlight()) {
+            String orderId = inFlight.getOrder().getId();
+            try {
+                recovered.put(orderId, resume(inFlight));
+            } catch (RuntimeException e) {
+                recovered.put(orderId, inFlight.getStage());
+            }
+        }
+        return recovered;
+    }
+
+    // Si annulla l'importo registrato con AUTHORIZED, non quello che darebbero le regole di adesso
+    private JournalStage resume(InFlightOrder inFlight) {
+        Order order = inFlight.getOrder();
+        switch (inFlight.getStage()) {
+            case STARTED:
+                journal.append(order.getId(), JournalStage.ABORTED);
+                return JournalStage.ABORTED;
+            case AUTHORIZED:
+                if (firstMissingSku(order.getItems(), checkAvailability(order.getItems())) != null) {
+                    payment.voidAuthorization(order.getId(), inFlight.getAuthorizedAmount(),
+                            order.getCustomer().getEmail());
+                    journal.append(order.getId(), JournalStage.ABORTED);
+                    return JournalStage.ABORTED;
+                }
+                reserveAndShip(order.getId(), order.getItems(), policy.current().isPriority(order));
+                return JournalStage.COMPLETED;
+            case RESERVED:
+                scheduleDelivery(order.getId(), policy.current().isPriority(order));
+                journal.append(order.getId(), JournalStage.COMPLETED);
+                return JournalStage.COMPLETED;
+            case VOID_PENDING:
+                payment.voidAuthorization(order.getId(), inFlight.getAuthorizedAmount(),
+                        order.getCustomer().getEmail());
+                journal.append(order.getId(), JournalStage.ABORTED);
+                return JournalStage.ABORTED;
+            default:
+                throw new IllegalStateException("Stadio non riprendibile: " + inFlight.getStage());
+        }
+    }
+
     public String processOrder(Order order) {
+        return idempotent(order.getId(), attempt -> measured(() -> speculativeExecutor != null
+                ? processOrderSpeculatively(order, attempt)
+                : processOrderSequentially(order, attempt)));
+    }
+
+    // Stesse regole e stesse porte, ma sulla forma compatta: importi in centesimi e articoli
+    // materializzati come OrderItem flyweight solo al confine con le porte.
+    // Non usa la modalità speculativa.
+    public String processOrder(CompactOrder order, SkuDictionary skus) {
+        return idempotent(order.getId(), attempt -> measured(() -> processCompactOrder(order, skus, attempt)));
+    }
+
+    private String processCompactOrder(CompactOrder order, SkuDictionary skus, Attempt attempt) {
         // 1. Controllo Stock
-        for (OrderItem item : order.getItems()) {
-            if (!inventory.checkStock(item.getSku(), item.getQuantity())) {
-                throw new IllegalStateException("Prodotto non disponibile: " + item.getSku());
+        List<OrderItem> items = order.items(skus);
+        String missingSku = firstMissingSku(items, checkAvailability(items));
+        if (missingSku != null) {
+            throw new OutOfStockException(missingSku);
+        }
+
+        // 2. Controllo Pagamento (la forma estesa dell'ordine serve solo al journal)
+        if (journal != OrderJournal.NOOP) {
+            journal.started(order.toOrder(skus));
+        }
+        CompiledPolicy rules = policy.current();
+        boolean preAuthorization = rules.preAuthorizes(order.isVip(), order.getTotalCents());
+        double authAmount = rules.authorizationAmount(order.isVip(), order.getTotalCents());
+        if (!authorize(attempt, order.getId(), preAuthorization, authAmount, order.getCustomerEmail())) {
+            journal.append(order.getId(), JournalStage.DECLINED);
+            return PAYMENT_DECLINED;
+        }
+
+        // 3. Conferma Ordine, 4. Spedizione
+        return fulfil(order.getId(), items, rules.isPriority(order.isVip(), order.getTotalCents(), items),
+                authAmount, order.getCustomerEmail());
+    }
+
+    private String idempotent(String orderId, Function<Attempt, String> execution) {
+        Attempt attempt = new Attempt();
+        if (idempotencyStore == null) {
+            return execution.apply(attempt);
+        }
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> existing = idempotencyStore.putIfAbsent(orderId, pending);
+        if (existing != null) {
+            return awaitOutcome(orderId, existing);
+        }
+        try {
+            String outcome = execution.apply(attempt);
+            pending.complete(outcome);
+            return outcome;
+        } catch (RuntimeException | Error e) {
+            if (isRetryable(e, attempt)) {
+                idempotencyStore.remove(orderId, pending);
             }
+            pending.completeExceptionally(e);
+            throw e;
         }
+    }
 
-        // 2. Controllo Pagamento
-        // Regola: Se è VIP, proviamo a pre-autorizzare solo 1€ per verifica, altrimenti tutto l'importo.
-        double authAmount = order.getCustomer().isVip() ? 1.0 : order.getTotalAmount();
-        
-        if (!payment.authorize(authAmount, order.getCustomer().getEmail())) {
-            return "PAYMENT_DECLINED";
+    // Nulla è rimasto impegnato alle porte se il gateway non è mai stato chiamato, oppure se manca
+    // lo stock e l'eventuale annullo è riuscito
+    private static boolean isRetryable(Throwable failure, Attempt attempt) {
+        return !attempt.authorizing
+                || failure instanceof OutOfStockException && failure.getSuppressed().length == 0;
+    }
+
+    // Esito di un'elaborazione altrui. L'eccezione memorizzata è condivisa da tutti i tentativi,
+    // quindi ognuno riceve la propria che la incapsula invece di rilanciare la stessa istanza.
+    private static String awaitOutcome(String orderId, CompletableFuture<String> existing) {
+        try {
+            return existing.join();
+        } catch (CompletionException e) {
+            Throwable failure = e.getCause() != null ? e.getCause() : e;
+            if (failure instanceof OutOfStockException) {
+                OutOfStockException replay = new OutOfStockException(((OutOfStockException) failure).getSku());
+                replay.initCause(failure);
+                throw replay;
+            }
+            throw new IllegalStateException("Ordine " + orderId + " già fallito: " + failure.getMessage(), failure);
+        }
+    }
+
+    // Stato di un'elaborazione idempotente: diventa true appena parte la chiamata al gateway di
+    // pagamento (anche da un altro thread, nella modalità speculativa)
+    private static final class Attempt {
+        volatile boolean authorizing;
+    }
+
+    private String measured(Supplier<String> execution) {
+        metrics.orderStarted();
+        String outcome = OrderMetrics.FAILED;
+        try {
+            outcome = execution.get();
+            return outcome;
+        } catch (OutOfStockException e) {
+            outcome = OUT_OF_STOCK;
+            metrics.outOfStock(e.getSku());
+            throw e;
+        } finally {
+            metrics.orderFinished(outcome);
+        }
+    }
+
+    private String processOrderSequentially(Order order, Attempt attempt) {
+        // 1. Controllo Stock (una sola chiamata in blocco per tutto il carrello)
+        Map<String, Boolean> availability = checkAvailability(order.getItems());
+        String missingSku = firstMissingSku(order.getItems(), availability);
+        if (missingSku != null) {
+            throw new OutOfStockException(missingSku);
+        }
+
+        return authorizeReserveAndShip(order, attempt);
+    }
+
+    private String authorizeReserveAndShip(Order order, Attempt attempt) {
+        // 2. Controllo Pagamento (secondo la policy: pre-autorizzazione simbolica, di default
+        // i VIP, oppure importo pieno)
+        CompiledPolicy rules = policy.current();
+        double authAmount = rules.authorizationAmount(order);
+        journal.started(order);
+        if (!authorize(attempt, order.getId(), rules.preAuthorizes(order), authAmount, order.getCustomer().getEmail())) {
+            journal.append(order.getId(), JournalStage.DECLINED);
+            return PAYMENT_DECLINED;
         }
 
+        return fulfil(order.getId(), order.getItems(), rules.isPriority(order), authAmount,
+                order.getCustomer().getEmail());
+    }
+
+    // Dall'autorizzazione concessa alla spedizione. Se qualcosa fallisce il chiamante riceve
+    // l'errore, quindi l'autorizzazione viene annullata: l'ordine non deve essere evaso dopo.
+    private String fulfil(String orderId, List<OrderItem> items, boolean priority, double authAmount, String email) {
+        try {
+            journal.authorized(orderId, authAmount);
+            return reserveAndShip(orderId, items, priority);
+        } catch (RuntimeException e) {
+            voidAuthorization(orderId, authAmount, email, e);
+            throw e;
+        }
+    }
+
+    // Usato anche da recover(), che in caso di errore lascia l'ordine al suo stadio
+    private String reserveAndShip(String orderId, List<OrderItem> items, boolean priority) {
         // 3. Conferma Ordine
-        inventory.reserveStock(order.getItems());
+        reserveStock(items);
+        journal.append(orderId, JournalStage.RESERVED);
         
         // 4. Spedizione
-        // Regola: Spedizione prioritaria se VIP o se l'ordine supera i 100€
-        boolean isPriority = order.getCustomer().isVip() || order.getTotalAmount() > 100.0;
-        shipping.scheduleDelivery(order.getId(), isPriority);
+        scheduleDelivery(orderId, priority);
+        journal.append(orderId, JournalStage.COMPLETED);
 
-        return "ORDER_CONFIRMED";
+        return ORDER_CONFIRMED;
+    }
+
+    // Elaborazione in blocco: una sola verifica stock sull'unione degli SKU, prenotazione unica
+    // per tutti gli ordini autorizzati e spedizioni inviate insieme.
+    // Ritorna l'esito per orderId nell'ordine di input: ORDER_CONFIRMED, PAYMENT_DECLINED oppure
+    // OUT_OF_STOCK (al posto dell'IllegalStateException del singolo ordine).
+    // Gli ordini che toccano uno SKU insufficiente per il totale del blocco vengono rielaborati uno
+    // alla volta dopo la prenotazione del blocco, così vedono lo stock effettivamente rimasto.
+    // Gli id ripetuti nel blocco vengono elaborati una volta sola (vale la prima occorrenza).
+    // Un errore su un ordine non ferma il blocco: l'ordine riceve FAILED (con l'autorizzazione
+    // annullata se era stata concessa) e gli altri proseguono. Se la prenotazione unica fallisce si
+    // prenota ordine per ordine; se fallisce la spedizione in blocco ricevono FAILED tutti gli ordini
+    // spediti insieme.
+    // Con un IdempotencyStore configurato, gli ordini già elaborati o in corso altrove non
+    // rientrano nel blocco e ricevono l'esito di quell'elaborazione.
+    public Map<String, String> processOrders(Collection<Order> orders) {
+        if (idempotencyStore == null) {
+            return processOrdersOnce(orders, new Attempt());
+        }
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        Map<String, CompletableFuture<String>> replayed = new LinkedHashMap<>();
+        List<Order> fresh = new ArrayList<>();
+        for (Order order : orders) {
+            String orderId = order.getId();
+            if (pending.containsKey(orderId) || replayed.containsKey(orderId)) {
+                continue;
+            }
+            CompletableFuture<String> future = new CompletableFuture<>();
+            CompletableFuture<String> existing = idempotencyStore.putIfAbsent(orderId, future);
+            if (existing != null) {
+                replayed.put(orderId, existing);
+            } else {
+                pending.put(orderId, future);
+                fresh.add(order);
+            }
+        }
+
+        Map<String, String> processed;
+        Attempt attempt = new Attempt();
+        try {
+            processed = processOrdersOnce(fresh, attempt);
+        } catch (RuntimeException | Error e) {
+            // come in processOrder: si memorizza l'errore solo se il gateway è già stato chiamato
+            for (Map.Entry<String, CompletableFuture<String>> entry : pending.entrySet()) {
+                if (!attempt.authorizing) {
+                    idempotencyStore.remove(entry.getKey(), entry.getValue());
+                }
+                entry.getValue().completeExceptionally(e);
+            }
+            throw e;
+        }
+        for (Map.Entry<String, CompletableFuture<String>> entry : pending.entrySet()) {
+            entry.getValue().complete(processed.get(entry.getKey()));
+        }
+
+        // Gli esiti altrui si aspettano solo ora, dopo aver completato i propri
+        Map<String, String> results = new LinkedHashMap<>();
+        for (Order order : orders) {
+            CompletableFuture<String> existing = replayed.get(order.getId());
+            results.put(order.getId(), existing != null ? awaitReplay(order.getId(), existing) : processed.get(order.getId()));
+        }
+        return results;
+    }
+
+    private static String awaitReplay(String orderId, CompletableFuture<String> existing) {
+        try {
+            return awaitOutcome(orderId, existing);
+        } catch (OutOfStockException e) {
+            return OUT_OF_STOCK;
+        }
+    }
+
+    private Map<String, String> processOrdersOnce(Collection<Order> orders, Attempt attempt) {
+        Map<String, Order> unique = new LinkedHashMap<>();
+        for (Order order : orders) {
+            unique.putIfAbsent(order.getId(), order);
+        }
+        Map<String, String> results = new LinkedHashMap<>();
+        for (String orderId : unique.keySet()) {
+            results.put(orderId, null);
+            metrics.orderStarted();
+        }
+        try {
+            processBatch(unique.values(), results, attempt);
+            return results;
+        } finally {
+            for (String result : results.values()) {
+                metrics.orderFinished(result != null ? result : OrderMetrics.FAILED);
+            }
+        }
+    }
+
+    private void processBatch(Collection<Order> orders, Map<String, String> results, Attempt attempt) {
+        // 1. Controllo Stock sull'unione degli articoli (le quantità per SKU si sommano)
+        List<OrderItem> allItems = new ArrayList<>();
+        for (Order order : orders) {
+            allItems.addAll(order.getItems());
+        }
+        Map<String, Boolean> availability = allItems.isEmpty() ? Map.of() : checkAvailability(allItems);
+
+        // 2. Controllo Pagamento per gli ordini coperti dal blocco
+        List<Order> fallback = new ArrayList<>();
+        List<Order> authorized = new ArrayList<>();
+        Map<String, Double> authorizedAmounts = new LinkedHashMap<>();
+        List<OrderItem> toReserve = new ArrayList<>();
+        Map<String, Boolean> deliveries = new LinkedHashMap<>();
+        for (Order order : orders) {
+            if (firstMissingSku(order.getItems(), availability) != null) {
+                fallback.add(order);
+                continue;
+            }
+            CompiledPolicy rules = policy.current();
+            double amount = rules.authorizationAmount(order);
+            try {
+                journal.started(order);
+                if (!authorize(attempt, order.getId(), rules.preAuthorizes(order), amount, order.getCustomer().getEmail())) {
+                    journal.append(order.getId(), JournalStage.DECLINED);
+                    results.put(order.getId(), PAYMENT_DECLINED);
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                // esito dell'autorizzazione sconosciuto: l'ordine resta STARTED per recover()
+                results.put(order.getId(), OrderMetrics.FAILED);
+                continue;
+            }
+            try {
+                journal.authorized(order.getId(), amount);
+            } catch (RuntimeException e) {
+                voidAuthorization(order, amount, e);
+                results.put(order.getId(), OrderMetrics.FAILED);
+                continue;
+            }
+            authorized.add(order);
+            authorizedAmounts.put(order.getId(), amount);
+            toReserve.addAll(order.getItems());
+            deliveries.put(order.getId(), rules.isPriority(order));
+        }
+
+        // 3. Conferma Ordini con una sola prenotazione, 4. Spedizioni in blocco
+        if (!authorized.isEmpty()) {
+            try {
+                reserveStock(toReserve);
+            } catch (RuntimeException e) {
+                // La prenotazione unica non è andata (tutto-o-niente): si riprova ordine per ordine
+                for (Order order : authorized) {
+                    try {
+                        reserveStock(order.getItems());
+                    } catch (RuntimeException orderFailure) {
+                        deliveries.remove(order.getId());
+                        voidAuthorization(order, authorizedAmounts.get(order.getId()), orderFailure);
+                        results.put(order.getId(), OrderMetrics.FAILED);
+                    }
+                }
+            }
+            for (String orderId : deliveries.keySet()) {
+                journal.append(orderId, JournalStage.RESERVED);
+            }
+            if (!deliveries.isEmpty()) {
+                try {
+                    scheduleDeliveries(deliveries);
+                } catch (RuntimeException e) {
+                    for (Order order : authorized) {
+                        if (deliveries.remove(order.getId()) != null) {
+                            voidAuthorization(order, authorizedAmounts.get(order.getId()), e);
+                            results.put(order.getId(), OrderMetrics.FAILED);
+                        }
+                    }
+                }
+            }
+            for (String orderId : deliveries.keySet()) {
+                journal.append(orderId, JournalStage.COMPLETED);
+                results.put(orderId, ORDER_CONFIRMED);
+            }
+        }
+
+        for (Order order : fallback) {
+            try {
+                String missingSku = firstMissingSku(order.getItems(), checkAvailability(order.getItems()));
+                if (missingSku != null) {
+                    metrics.outOfStock(missingSku);
+                    results.put(order.getId(), OUT_OF_STOCK);
+                } else {
+                    results.put(order.getId(), authorizeReserveAndShip(order, attempt));
+                }
+            } catch (RuntimeException e) {
+                results.put(order.getId(), OrderMetrics.FAILED);
+            }
+        }
+    }
+
+    private String processOrderSpeculatively(Order order, Attempt attempt) {
+        CompiledPolicy rules = policy.current();
+        boolean preAuthorization = rules.preAuthorizes(order);
+        double authAmount = rules.authorizationAmount(order);
+        String email = order.getCustomer().getEmail();
+
+        // 1+2. Pagamento avviato subito; se l'ordine viene scartato prima che parta, non parte più
+        journal.started(order);
+        AtomicBoolean abandoned = new AtomicBoolean();
+        CompletableFuture<Boolean> authorization = CompletableFuture.supplyAsync(
+                () -> !abandoned.get() && authorize(attempt, order.getId(), preAuthorization, authAmount, email),
+                speculativeExecutor);
+
+        String missingSku;
+        try {
+            missingSku = firstMissingSku(order.getItems(), checkAvailability(order.getItems()));
+        } catch (RuntimeException e) {
+            abandonAuthorization(order, authorization, abandoned, authAmount, e);
+            throw e;
+        }
+        if (missingSku != null) {
+            OutOfStockException missing = new OutOfStockException(missingSku);
+            abandonAuthorization(order, authorization, abandoned, authAmount, missing);
+            throw missing;
+        }
+
+        if (!await(authorization)) {
+            journal.append(order.getId(), JournalStage.DECLINED);
+            return PAYMENT_DECLINED;
+        }
+
+        return fulfil(order.getId(), order.getItems(), rules.isPriority(order), authAmount, email);
+    }
+
+    // Aspetta sempre l'esito: un'autorizzazione già in volo non si può fermare, solo annullare.
+    // Gli errori di pagamento/annullo restano soppressi sotto l'eccezione che ha fatto scartare l'ordine.
+    // Se l'esito dell'autorizzazione non si conosce l'ordine resta STARTED e recover() lo chiude
+    // come ABORTED; se l'annullo fallisce resta VOID_PENDING e recover() riprova solo l'annullo.
+    private void abandonAuthorization(Order order, CompletableFuture<Boolean> authorization, AtomicBoolean abandoned,
+                                      double authAmount, RuntimeException cause) {
+        abandoned.set(true);
+        try {
+            if (!await(authorization)) {
+                journal.append(order.getId(), JournalStage.ABORTED);
+                return;
+            }
+            journal.authorized(order.getId(), authAmount);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+            return;
+        }
+        voidAuthorization(order.getId(), authAmount, order.getCustomer().getEmail(), cause);
+    }
+
+    private void voidAuthorization(Order order, double amount, RuntimeException cause) {
+        voidAuthorization(order.getId(), amount, order.getCustomer().getEmail(), cause);
+    }
+
+    // Compensazione di un ordine autorizzato che non verrà evaso perché il chiamante riceve un errore.
+    // VOID_PENDING va nel journal prima dell'annullo: dopo un crash recover() completa l'annullo
+    // invece di evadere l'ordine. Lo stock eventualmente già prenotato non viene rilasciato
+    // (InventoryService non ha un'operazione inversa). Gli errori restano soppressi sotto cause.
+    private void voidAuthorization(String orderId, double amount, String email, RuntimeException cause) {
+        try {
+            journal.append(orderId, JournalStage.VOID_PENDING);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+        try {
+            payment.voidAuthorization(orderId, amount, email);
+            journal.append(orderId, JournalStage.ABORTED);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    // join() che rilancia l'eccezione originale invece della CompletionException
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Chiamate alle porte, ognuna misurata come stadio (anche quando termina con un'eccezione)
+    private Map<String, Boolean> checkAvailability(List<OrderItem> items) {
+        long start = System.nanoTime();
+        try {
+            return inventory.checkAvailability(items);
+        } finally {
+            metrics.stageCompleted(Stage.CHECK_STOCK, System.nanoTime() - start);
+        }
+    }
+
+    private boolean authorize(Attempt attempt, String orderId, boolean preAuthorization, double amount, String email) {
+        attempt.authorizing = true;
+        long start = System.nanoTime();
+        try {
+            return payment.authorizeOrder(orderId, amount, email, preAuthorization);
+        } finally {
+            metrics.stageCompleted(Stage.AUTHORIZE, System.nanoTime() - start);
+        }
+    }
+
+    private void reserveStock(List<OrderItem> items) {
+        long start = System.nanoTime();
+        try {
+            inventory.reserveStock(items);
+        } finally {
+            metrics.stageCompleted(Stage.RESERVE_STOCK, System.nanoTime() - start);
+        }
+    }
+
+    private void scheduleDelivery(String orderId, boolean priority) {
+        long start = System.nanoTime();
+        try {
+            shipping.scheduleDelivery(orderId, priority);
+        } finally {
+            metrics.stageCompleted(Stage.SCHEDULE_DELIVERY, System.nanoTime() - start);
+        }
+    }
+
+    private void scheduleDeliveries(Map<String, Boolean> deliveries) {
+        long start = System.nanoTime();
+        try {
+            shipping.scheduleDeliveries(deliveries);
+        } finally {
+            metrics.stageCompleted(Stage.SCHEDULE_DELIVERY, System.nanoTime() - start);
+        }
+    }
+
+    // Primo SKU (nell'ordine degli articoli) non disponibile, oppure null se c'è tutto.
+    // Uno SKU assente dalla mappa è considerato non disponibile.
+    static String firstMissingSku(List<OrderItem> items, Map<String, Boolean> availability) {
+        for (OrderItem item : items) {
+            if (!Boolean.TRUE.equals(availability.get(item.getSku()))) {
+                return item.getSku();
+            }
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
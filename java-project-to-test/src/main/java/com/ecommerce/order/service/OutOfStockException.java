@@ -0,0 +1,17 @@
+package com.ecommerce.order.service;
+
+// Stock mancante per uno SKU dell'ordine. Resta una IllegalStateException come da specifica,
+// ma permette di distinguere questo esito dagli altri errori (es. reserveStock fallita).
+public class OutOfStockException extends IllegalStateException {
+
+    private final String sku;
+
+    public OutOfStockException(String sku) {
+        super("Prodotto non disponibile: " + sku);
+        this.sku = sku;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+}
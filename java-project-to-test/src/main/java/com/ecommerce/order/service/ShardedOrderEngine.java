@@ -0,0 +1,267 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Order;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Esegue OrderProcessor su N shard a thread singolo. Gli ordini sono assegnati allo shard in base
+// all'email del cliente: gli ordini dello stesso cliente sono processati uno alla volta e nell'ordine
+// di invio, clienti diversi procedono in parallelo senza lock condivisi.
+// Ogni shard ha una coda limitata: quando è piena submit blocca il chiamante (backpressure).
+// Il lavoro che non richiede ordinamento per cliente (submitUnordered) va in una deque per shard
+// da cui gli shard inattivi possono rubare.
+// shutdown smette di accettare ordini e lascia che gli shard finiscano quelli già in coda.
+public class ShardedOrderEngine implements AutoCloseable {
+
+    // Quanto uno shard senza lavoro resta in attesa sulla propria coda prima di ricontrollare
+    // le deque degli altri shard e la terminazione. È solo una rete di sicurezza: l'arrivo di lavoro
+    // rubabile presso uno shard occupato sveglia subito un ladro inattivo (vedi enqueue)
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final OrderProcessor processor;
+    private final Shard[] shards;
+    private final CountDownLatch terminated;
+    private final AtomicInteger nextUnordered = new AtomicInteger();
+    // chiamanti dentro submit: gli shard non terminano finché qualcuno sta ancora accodando
+    private final AtomicInteger submitting = new AtomicInteger();
+    private final LongAdder stolen = new LongAdder();
+    private volatile boolean running = true;
+
+    public ShardedOrderEngine(OrderProcessor processor, int shardCount, int queueCapacity) {
+        if (shardCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("shardCount e queueCapacity devono essere positivi");
+        }
+        this.processor = processor;
+        this.shards = new Shard[shardCount];
+        this.terminated = new CountDownLatch(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    // Un shard per core
+    public ShardedOrderEngine(OrderProcessor processor, int queueCapacity) {
+        this(processor, Runtime.getRuntime().availableProcessors(), queueCapacity);
+    }
+
+    // Accoda l'ordine sullo shard del cliente, bloccando se la coda è piena.
+    // La future si completa con l'esito di processOrder o con la sua eccezione.
+    public CompletableFuture<String> submit(Order order) {
+        Task task = new Task(order);
+        Shard shard = shards[shardOf(order.getCustomer().getEmail())];
+        enqueue(shard, shard.ordered, task);
+        return task.result;
+    }
+
+    // Per ordini il cui ordinamento rispetto agli altri dello stesso cliente non conta
+    // (es. riprocessamenti): distribuiti a rotazione, eseguibili da qualunque shard inattivo
+    public CompletableFuture<String> submitUnordered(Order order) {
+        Task task = new Task(order);
+        Shard shard = shards[Math.floorMod(nextUnordered.getAndIncrement(), shards.length)];
+        enqueue(shard, shard.unordered, task);
+        return task.result;
+    }
+
+    // Non accetta più ordini; quelli già accodati vengono comunque processati
+    public void shutdown() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.wakeUp();
+        }
+    }
+
+    public boolean awaitTermination(Duration timeout) throws InterruptedException {
+        return terminated.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    // shutdown e attesa che tutti gli ordini accodati siano processati. Se il chiamante viene
+    // interrotto smette di attendere e ripristina il flag; gli shard finiscono comunque le code.
+    @Override
+    public void close() {
+        shutdown();
+        try {
+            terminated.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    // Ordini in attesa su tutti gli shard (non include quelli in esecuzione)
+    public int pending() {
+        int pending = 0;
+        for (Shard shard : shards) {
+            pending += shard.ordered.size() + shard.unordered.size();
+        }
+        return pending;
+    }
+
+    // Ordini non ordinati eseguiti da uno shard diverso da quello su cui erano stati accodati
+    public long stolen() {
+        return stolen.sum();
+    }
+
+    int shardOf(String email) {
+        int h = email.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    private void enqueue(Shard shard, BlockingQueue<Task> queue, Task task) {
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                throw new IllegalStateException("ShardedOrderEngine fermato, ordine rifiutato: " + task.order.getId());
+            }
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrotto in attesa di spazio in coda: " + task.order.getId(), e);
+        } finally {
+            submitting.decrementAndGet();
+        }
+        if (queue != shard.ordered) {
+            if (shard.idle) {
+                shard.wakeUp();
+            } else {
+                wakeThief(shard);
+            }
+        }
+    }
+
+    // Il proprietario della deque è occupato: sveglia il primo shard inattivo, che la ruberà
+    private void wakeThief(Shard owner) {
+        for (int i = 1; i < shards.length; i++) {
+            Shard thief = shards[(owner.index + i) % shards.length];
+            if (thief.idle) {
+                thief.wakeUp();
+                return;
+            }
+        }
+    }
+
+    private final class Task implements Runnable {
+        final Order order;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Task(Order order) {
+            this.order = order;
+        }
+
+        // Anche un Error finisce nella future: il thread dello shard deve continuare a svuotare
+        // la coda, altrimenti submit resterebbe bloccato per sempre sulla coda piena
+        @Override
+        public void run() {
+            try {
+                result.complete(processor.processOrder(order));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final class Shard {
+        final int index;
+        final BlockingQueue<Task> ordered;
+        final LinkedBlockingDeque<Task> unordered;
+        final Thread thread;
+        // segnaposto accodato in ordered solo per svegliare lo shard in attesa
+        final Task wakeUp = new Task(null);
+        volatile boolean idle;
+
+        Shard(int index, int capacity) {
+            this.index = index;
+            this.ordered = new ArrayBlockingQueue<>(capacity);
+            this.unordered = new LinkedBlockingDeque<>(capacity);
+            this.thread = new Thread(this::loop, "order-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void loop() {
+            try {
+                while (true) {
+                    Task task = next();
+                    if (task == null) {
+                        if (!running && submitting.get() == 0 && ordered.isEmpty() && unordered.isEmpty()) {
+                            return;
+                        }
+                        task = awaitTask();
+                    }
+                    if (task != null && task != wakeUp) {
+                        task.run();
+                    }
+                }
+            } finally {
+                terminated.countDown();
+            }
+        }
+
+        private Task next() {
+            Task task = ordered.poll();
+            if (task == null) {
+                task = unordered.pollFirst();
+            }
+            if (task == null) {
+                task = steal();
+            }
+            return task;
+        }
+
+        // Attende sulla propria coda ordered. Chi accoda altrove (deque unordered propria o di uno
+        // shard occupato, shutdown) vede idle e accoda wakeUp; idle è scritto prima di ricontrollare
+        // la propria deque e quelle degli altri, così non si perde lavoro arrivato nel frattempo.
+        private Task awaitTask() {
+            idle = true;
+            try {
+                Task task = unordered.pollFirst();
+                if (task == null) {
+                    task = steal();
+                }
+                if (task != null) {
+                    return task;
+                }
+                return ordered.poll(IDLE_WAIT_NANOS, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // i thread shard non vengono interrotti dall'engine: si ricontrolla lo stato
+                return null;
+            } finally {
+                idle = false;
+            }
+        }
+
+        void wakeUp() {
+            if (idle) {
+                ordered.offer(wakeUp);
+            }
+        }
+
+        // Prende dalla coda opposta a quella del proprietario, per non contendersi la testa
+        private Task steal() {
+            for (int i = 1; i < shards.length; i++) {
+                Task task = shards[(index + i) % shards.length].unordered.pollLast();
+                if (task != null) {
+                    stolen.increment();
+                    return task;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ecommerce.order.intake;
+
+import com.ecommerce.order.model.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonOrderReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private Path write(String content) throws IOException {
+        Path file = dir.resolve("orders.ndjson");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void readAll_parsesOrdersCustomersAndItems_ignoringUnknownKeysAndBlankLines() throws IOException {
+        Path file = write(
+                "{\"id\":\"A-1\",\"email\":\"a@example.com\",\"vip\":true,\"total\":129.90,"
+                        + "\"items\":[{\"sku\":\"SKU-1\",\"quantity\":2},{\"sku\":\"SKU-2\",\"quantity\":1}]}\n"
+                        + "\n"
+                        + "{ \"channel\": {\"name\": \"web\", \"tags\": [1, 2]}, \"id\": \"A-2\", "
+                        + "\"email\": \"b\\u00e8@example.com\", \"vip\": false, \"totalAmount\": 1e2, \"items\": [] }\r\n");
+
+        List<Order> orders = new NdjsonOrderReader(file).readAll();
+
+        assertEquals(2, orders.size());
+        Order first = orders.get(0);
+        assertEquals("A-1", first.getId());
+        assertTrue(first.getCustomer().isVip());
+        assertEquals(129.90, first.getTotalAmount());
+        assertEquals("SKU-2", first.getItems().get(1).getSku());
+        assertEquals(2, first.getItems().get(0).getQuantity());
+        Order second = orders.get(1);
+        assertEquals("bè@example.com", second.getCustomer().getEmail());
+        assertEquals(100.0, second.getTotalAmount());
+        assertTrue(second.getItems().isEmpty());
+    }
+
+    @Test
+    void forEach_handlesLinesSpanningMappedWindows() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append("{\"id\":\"O-").append(i).append("\",\"email\":\"c").append(i)
+                    .append("@example.com\",\"total\":").append(i).append(".5,\"items\":[{\"sku\":\"S\",\"quantity\":")
+                    .append(i + 1).append("}]}\n");
+        }
+        Path file = write(content.toString());
+
+        List<Order> orders = new NdjsonOrderReader(file, 128).readAll();
+
+        assertEquals(50, orders.size());
+        assertEquals("O-49", orders.get(49).getId());
+        assertEquals(49.5, orders.get(49).getTotalAmount());
+        assertEquals(50, orders.get(49).getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void malformedLine_reportsLineNumber() throws IOException {
+        Path file = write("{\"id\":\"A-1\",\"email\":\"a@example.com\"}\n{\"id\":\"A-2\",\"email\":}\n");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> new NdjsonOrderReader(file).readAll());
+        assertTrue(ex.getMessage().contains("Riga 2"));
+    }
+
+    @Test
+    void unicodeEscapes_surrogatePairBecomesOneCharacter_andLoneSurrogateBecomesQuestionMark() throws IOException {
+        Path file = write("{\"id\":\"A-1\",\"email\":\"\\ud83d\\ude00@example.com\"}\n"
+                + "{\"id\":\"A-2\",\"email\":\"\\ud83d\\u0041@example.com\"}\n");
+
+        List<Order> orders = new NdjsonOrderReader(file).readAll();
+
+        assertEquals("\uD83D\uDE00@example.com", orders.get(0).getCustomer().getEmail());
+        assertEquals("?A@example.com", orders.get(1).getCustomer().getEmail());
+    }
+
+    @Test
+    void unicodeEscape_withNonHexDigit_reportsLineAndColumn() throws IOException {
+        Path file = write("{\"id\":\"A-1\",\"email\":\"a@example.com\"}\n{\"id\":\"\\u00g1\",\"email\":\"b@example.com\"}\n");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> new NdjsonOrderReader(file).readAll());
+        assertTrue(ex.getMessage().contains("Riga 2"));
+        assertTrue(ex.getMessage().contains("'g'"));
+        assertTrue(ex.getMessage().contains("colonna 12"));
+    }
+
+    @Test
+    void forEach_withInvalidLineHandler_skipsBadLinesAndKeepsReading() throws IOException {
+        Path file = write("{\"id\":\"A-1\",\"email\":\"a@example.com\"}\n"
+                + "{\"id\":\"A-2\",\"email\":}\n"
+                + "not json\n"
+                + "{\"id\":\"A-3\",\"email\":\"c@example.com\"}\n");
+        List<Order> orders = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+
+        long count = new NdjsonOrderReader(file).forEach(orders::add, e -> invalid.add(e.getMessage()));
+
+        assertEquals(2, count);
+        assertEquals(List.of("A-1", "A-3"), orders.stream().map(Order::getId).toList());
+        assertEquals(2, invalid.size());
+        assertTrue(invalid.get(0).contains("Riga 2"));
+        assertTrue(invalid.get(1).contains("Riga 3"));
+    }
+}
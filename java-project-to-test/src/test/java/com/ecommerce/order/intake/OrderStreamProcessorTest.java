@@ -0,0 +1,57 @@
+package com.ecommerce.order.intake;
+
+import com.ecommerce.order.ports.InventoryService;
+import com.ecommerce.order.ports.PaymentGateway;
+import com.ecommerce.order.ports.ShippingService;
+import com.ecommerce.order.service.OrderProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderStreamProcessorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void process_writesOneResultLinePerOrder() throws IOException {
+        InventoryService inventory = mock(InventoryService.class, CALLS_REAL_METHODS);
+        PaymentGateway payment = mock(PaymentGateway.class, CALLS_REAL_METHODS);
+        ShippingService shipping = mock(ShippingService.class);
+        when(inventory.checkStock("SKU-OK", 1)).thenReturn(true);
+        when(inventory.checkStock("SKU-KO", 1)).thenReturn(false);
+        when(payment.authorize(10.0, "ok@example.com")).thenReturn(true);
+        when(payment.authorize(20.0, "declined@example.com")).thenReturn(false);
+
+        Path input = dir.resolve("in.ndjson");
+        Files.write(input, List.of(
+                "{\"id\":\"O-1\",\"email\":\"ok@example.com\",\"total\":10,\"items\":[{\"sku\":\"SKU-OK\",\"quantity\":1}]}",
+                "{\"id\":\"O-2\",\"email\":\"declined@example.com\",\"total\":20,\"items\":[{\"sku\":\"SKU-OK\",\"quantity\":1}]}",
+                "{\"id\":\"O-3\",\"email\":\"ok@example.com\",\"total\":10,\"items\":[{\"sku\":\"SKU-KO\",\"quantity\":1}]}"));
+        Path output = dir.resolve("out.csv");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        long count;
+        try {
+            count = new OrderStreamProcessor(new OrderProcessor(inventory, payment, shipping), executor, 2)
+                    .process(input, output);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(3, count);
+        List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8).stream().sorted().collect(Collectors.toList());
+        assertEquals(List.of("O-1,ORDER_CONFIRMED", "O-2,PAYMENT_DECLINED", "O-3,OUT_OF_STOCK"), lines);
+    }
+}
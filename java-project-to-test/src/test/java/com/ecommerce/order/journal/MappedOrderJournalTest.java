@@ -0,0 +1,169 @@
+package com.ecommerce.order.journal;
+
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedOrderJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static Order order(String id) {
+        return new Order(id, new Customer(id.toLowerCase() + "@example.com", id.startsWith("V")),
+                List.of(new OrderItem("SKU-1", 2), new OrderItem("SKU-è", 1)), 129.90);
+    }
+
+    private MappedOrderJournal open() throws IOException {
+        return MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void inFlightOrdersSurviveReopenWithLastStage() throws IOException {
+        try (MappedOrderJournal journal = open()) {
+            journal.started(order("A-1"));
+            journal.authorized("A-1", 129.90);
+            journal.started(order("V-2"));
+            journal.started(order("A-3"));
+            journal.authorized("A-3", 129.90);
+            journal.append("A-3", JournalStage.RESERVED);
+            journal.append("A-3", JournalStage.COMPLETED);
+        }
+
+        try (MappedOrderJournal journal = open()) {
+            List<InFlightOrder> inFlight = journal.inFlight();
+            assertEquals(2, inFlight.size());
+            assertEquals(JournalStage.AUTHORIZED, inFlight.get(0).getStage());
+            assertEquals(129.90, inFlight.get(0).getAuthorizedAmount());
+            assertEquals(JournalStage.STARTED, inFlight.get(1).getStage());
+            assertTrue(Double.isNaN(inFlight.get(1).getAuthorizedAmount()));
+
+            Order restored = inFlight.get(1).getOrder();
+            assertEquals("V-2", restored.getId());
+            assertEquals("v-2@example.com", restored.getCustomer().getEmail());
+            assertTrue(restored.getCustomer().isVip());
+            assertEquals(129.90, restored.getTotalAmount());
+            assertEquals("SKU-è", restored.getItems().get(1).getSku());
+            assertEquals(2, restored.getItems().get(0).getQuantity());
+        }
+    }
+
+    @Test
+    void fullSegmentRollsOverKeepingOnlyLiveOrders() throws IOException {
+        try (MappedOrderJournal journal = open()) {
+            journal.started(order("LIVE"));
+            journal.authorized("LIVE", 1.0);
+            journal.append("LIVE", JournalStage.RESERVED);
+            for (int i = 0; i < 500; i++) {
+                journal.started(order("DONE-" + i));
+                journal.append("DONE-" + i, JournalStage.DECLINED);
+            }
+
+            assertTrue(journal.compactions() > 2);
+            assertEquals(1, segmentFiles().size());
+            assertEquals(1, journal.inFlight().size());
+        }
+
+        try (MappedOrderJournal journal = open()) {
+            assertEquals(1, journal.inFlight().size());
+            assertEquals("LIVE", journal.inFlight().get(0).getOrder().getId());
+            assertEquals(JournalStage.RESERVED, journal.inFlight().get(0).getStage());
+            // l'importo autorizzato sopravvive alle compattazioni
+            assertEquals(1.0, journal.inFlight().get(0).getAuthorizedAmount());
+        }
+    }
+
+    @Test
+    void compactionInterruptedByACrashLeavesThePreviousSegmentInCharge() throws IOException {
+        try (MappedOrderJournal journal = open()) {
+            journal.started(order("A-1"));
+            journal.authorized("A-1", 129.90);
+        }
+        // snapshot a metà del segmento successivo: solo il record STARTED
+        Path segment = segmentFiles().get(0);
+        String name = segment.getFileName().toString();
+        long index = Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+        Path partial = dir.resolve(String.format("journal-%020d.log.tmp", index + 1));
+        try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            in.read(header, 0);
+            in.transferTo(0, 8 + header.flip().getInt(), out);
+        }
+
+        try (MappedOrderJournal journal = open()) {
+            assertEquals(1, journal.inFlight().size());
+            assertEquals(JournalStage.AUTHORIZED, journal.inFlight().get(0).getStage());
+            assertEquals(1, segmentFiles().size());
+            assertTrue(segmentFiles().get(0).toString().endsWith(".log"));
+        }
+    }
+
+    @Test
+    void tornRecordAtTheTailIsIgnored() throws IOException {
+        try (MappedOrderJournal journal = open()) {
+            journal.started(order("A-1"));
+            journal.started(order("A-2"));
+            journal.sync();
+        }
+        // corrompe l'ultimo byte scritto del secondo record
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            int firstRecord = 8 + header.flip().getInt();
+            header.clear();
+            channel.read(header, firstRecord);
+            int secondLength = header.flip().getInt();
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0x7F}), firstRecord + 8 + secondLength - 1);
+        }
+
+        try (MappedOrderJournal journal = open()) {
+            assertEquals(1, journal.inFlight().size());
+            assertEquals("A-1", journal.inFlight().get(0).getOrder().getId());
+        }
+    }
+
+    @Test
+    void authorizedNeedsTheAmount() throws IOException {
+        try (MappedOrderJournal journal = open()) {
+            journal.started(order("A-1"));
+            assertThrows(IllegalArgumentException.class, () -> journal.append("A-1", JournalStage.AUTHORIZED));
+        }
+    }
+
+    @Test
+    void startedNeedsTheWholeOrder() throws IOException {
+        try (MappedOrderJournal journal = open()) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append("A-1", JournalStage.STARTED));
+        }
+    }
+
+    @Test
+    void closedJournalRejectsWrites() throws IOException {
+        MappedOrderJournal journal = open();
+        journal.close();
+
+        assertThrows(IllegalStateException.class, () -> journal.started(order("A-1")));
+    }
+}
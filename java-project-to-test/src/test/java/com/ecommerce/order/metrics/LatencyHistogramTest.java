@@ -0,0 +1,57 @@
+package com.ecommerce.order.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValues_areRecordedExactly() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 50; v++) {
+            histogram.record(v);
+        }
+
+        assertEquals(50, histogram.count());
+        assertEquals(25, histogram.valueAtPercentile(50));
+        assertEquals(50, histogram.valueAtPercentile(100));
+        assertEquals(25.5, histogram.mean(), 1e-9);
+    }
+
+    @Test
+    void largeValues_stayWithinRelativePrecisionOfBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1_000);
+        }
+
+        assertEquals(50_000_000, histogram.valueAtPercentile(50), 50_000_000 * 0.04);
+        assertEquals(99_000_000, histogram.valueAtPercentile(99), 99_000_000 * 0.04);
+        assertEquals(100_000_000, histogram.max());
+        assertTrue(histogram.valueAtPercentile(100) <= histogram.max());
+    }
+
+    @Test
+    void bucketIndex_isMonotonicAndCoversUpperBound() {
+        int previous = -1;
+        for (long v = 0; v < 1 << 20; v += 7) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(index >= previous);
+            assertTrue(LatencyHistogram.highestValueIn(index) >= v);
+            previous = index;
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueIn(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void negativeValues_areClampedToZero_andResetClears() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.valueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+    }
+}
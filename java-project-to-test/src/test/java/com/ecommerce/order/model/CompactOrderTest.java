@@ -0,0 +1,58 @@
+package com.ecommerce.order.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactOrderTest {
+
+    @Test
+    void from_andToOrder_roundTripThroughCentsAndSkuIds() {
+        SkuDictionary skus = new SkuDictionary();
+        Order order = new Order("C-1", new Customer("c@example.com", true),
+                List.of(new OrderItem("SKU-1", 2), new OrderItem("SKU-2", 40), new OrderItem("SKU-1", 1)), 129.99);
+
+        CompactOrder compact = CompactOrder.from(order, skus);
+        Order back = compact.toOrder(skus);
+
+        assertEquals(12_999, compact.getTotalCents());
+        assertEquals(3, compact.getItemCount());
+        assertEquals(compact.getSkuId(0), compact.getSkuId(2));
+        assertEquals(2, skus.size());
+        assertEquals("C-1", back.getId());
+        assertTrue(back.getCustomer().isVip());
+        assertEquals(129.99, back.getTotalAmount());
+        assertEquals("SKU-2", back.getItems().get(1).getSku());
+        assertEquals(40, back.getItems().get(1).getQuantity());
+    }
+
+    @Test
+    void toCents_absorbsFloatingPointNoise() {
+        assertEquals(10_000, CompactOrder.toCents(0.1 * 1000.0000000000001));
+        assertEquals(10_001, CompactOrder.toCents(100.01));
+    }
+
+    @Test
+    void items_shareFlyweightsForSmallQuantities() {
+        SkuDictionary skus = new SkuDictionary();
+        int id = skus.idOf("SKU-F");
+        CompactOrder first = new CompactOrder("F-1", "a@example.com", false, 100, new int[]{id}, new int[]{1});
+        CompactOrder second = new CompactOrder("F-2", "b@example.com", false, 100, new int[]{id}, new int[]{1});
+
+        assertSame(first.items(skus).get(0), second.items(skus).get(0));
+        assertNotSame(skus.item(id, 500), skus.item(id, 500));
+    }
+
+    @Test
+    void skuDictionary_growsAndKeepsIdsStable() {
+        SkuDictionary skus = new SkuDictionary();
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(i, skus.idOf("SKU-" + i));
+        }
+        assertEquals(500, skus.idOf("SKU-500"));
+        assertEquals("SKU-999", skus.skuOf(999));
+        assertThrows(IllegalArgumentException.class, () -> skus.skuOf(1_000));
+    }
+}
@@ -0,0 +1,103 @@
+package com.ecommerce.order.policy;
+
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledPolicyTest {
+
+    private static final List<OrderItem> ITEMS = List.of(new OrderItem("SKU-1", 1), new OrderItem("SKU-2", 3));
+
+    // Tutte le regole presenti e disattivate, poi quelle indicate
+    private static Properties rules(String... keyValues) {
+        Properties rules = new Properties();
+        rules.setProperty("preauth.vip", "false");
+        rules.setProperty("preauth.amount", "");
+        rules.setProperty("preauth.vip.limit", "");
+        rules.setProperty("priority.vip", "false");
+        rules.setProperty("priority.threshold", "");
+        rules.setProperty("priority.skus", "");
+        for (int i = 0; i < keyValues.length; i += 2) {
+            rules.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return rules;
+    }
+
+    private static Order order(boolean vip, double total) {
+        return new Order("P-1", new Customer("p@example.com", vip), ITEMS, total);
+    }
+
+    @Test
+    void defaultsReproduceTheRequirements() {
+        CompiledPolicy policy = CompiledPolicy.defaults();
+
+        // VIP: solo 1€ di pre-autorizzazione, qualunque sia il totale
+        assertTrue(policy.preAuthorizes(order(true, 5_000.0)));
+        assertEquals(1.0, policy.authorizationAmount(order(true, 5_000.0)));
+        // standard: importo pieno
+        assertFalse(policy.preAuthorizes(order(false, 50.0)));
+        assertEquals(129.99, policy.authorizationAmount(order(false, 129.99)));
+
+        // prioritaria se VIP oppure oltre 100€ (strettamente)
+        assertTrue(policy.isPriority(order(true, 10.0)));
+        assertFalse(policy.isPriority(order(false, 100.0)));
+        assertTrue(policy.isPriority(order(false, 100.01)));
+        // su un Order il totale passa in centesimi, come nella forma compatta
+        assertFalse(policy.isPriority(order(false, 100.004)));
+        assertFalse(policy.isPriority(false, 10_000, ITEMS));
+        assertTrue(policy.isPriority(false, 10_001, ITEMS));
+    }
+
+    @Test
+    void marketRulesChangeThresholdsAndAddPrioritySkus() {
+        CompiledPolicy policy = CompiledPolicy.compile(rules(
+                "preauth.vip", "true",
+                "preauth.amount", "0.50",
+                "preauth.vip.limit", "1000",
+                "priority.vip", "false",
+                "priority.threshold", "250.00",
+                "priority.skus", " SKU-FRESH , SKU-2 "));
+
+        assertEquals(0.5, policy.authorizationAmount(order(true, 1_000.0)));
+        assertEquals(1_000.01, policy.authorizationAmount(order(true, 1_000.01)));
+
+        assertFalse(policy.isPriority(true, 20_000, List.of(new OrderItem("SKU-1", 1))));
+        assertTrue(policy.isPriority(false, 25_001, List.of()));
+        assertTrue(policy.isPriority(false, 100, ITEMS));
+    }
+
+    @Test
+    void emptyRulesAreDisabled() {
+        CompiledPolicy policy = CompiledPolicy.compile(rules());
+
+        assertFalse(policy.preAuthorizes(true, 100));
+        assertFalse(policy.isPriority(true, Long.MAX_VALUE - 1, ITEMS));
+    }
+
+    @Test
+    void missingRulesAreRejected() {
+        // es. un file letto mentre un editor lo stava riscrivendo
+        Properties truncated = rules();
+        truncated.remove("priority.threshold");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(truncated));
+        assertTrue(e.getMessage().contains("priority.threshold"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(new Properties()));
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(rules("priority.treshold", "100")));
+        assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(rules("priority.threshold", "100.001")));
+        assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(rules("priority.threshold", "cento")));
+        assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(rules("priority.threshold", "-1")));
+        assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(rules("priority.vip", "yes")));
+        assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(rules("preauth.vip", "true")));
+    }
+}
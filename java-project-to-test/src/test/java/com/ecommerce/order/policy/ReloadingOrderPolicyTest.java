@@ -0,0 +1,113 @@
+package com.ecommerce.order.policy;
+
+import com.ecommerce.order.model.CompactOrder;
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.model.SkuDictionary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReloadingOrderPolicyTest {
+
+    @TempDir
+    Path dir;
+
+    private static final List<OrderItem> ITEMS = List.of(new OrderItem("SKU-1", 1));
+    // Tutte le regole, senza VIP né soglia: i test aggiungono in coda quella che cambiano
+    private static final String BASE = "preauth.vip=false\npreauth.amount=\npreauth.vip.limit=\n"
+            + "priority.vip=false\npriority.threshold=\npriority.skus=\n";
+
+    // Scrive il file spostando la data di modifica, così il cambiamento si vede anche
+    // su filesystem con risoluzione al secondo
+    private static void write(Path file, String rules, int secondsAhead) throws IOException {
+        Files.writeString(file, rules);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(secondsAhead)));
+    }
+
+    @Test
+    void changedFileIsPickedUpAndInvalidOneIsIgnored() throws IOException {
+        Path file = dir.resolve("market.properties");
+        write(file, BASE + "priority.threshold=100.00\n", 0);
+
+        try (ReloadingOrderPolicy policy = new ReloadingOrderPolicy(file, Duration.ofHours(1))) {
+            CompiledPolicy before = policy.current();
+            assertTrue(before.isPriority(false, 15_000, ITEMS));
+            assertFalse(policy.reloadIfChanged());
+
+            write(file, BASE + "priority.threshold=200.00\n", 10);
+            assertTrue(policy.reloadIfChanged());
+            assertFalse(policy.current().isPriority(false, 15_000, ITEMS));
+            // chi aveva già preso le regole precedenti continua a vederle intere
+            assertTrue(before.isPriority(false, 15_000, ITEMS));
+
+            write(file, BASE + "priority.threshold=duecento\n", 20);
+            assertFalse(policy.reloadIfChanged());
+            assertFalse(policy.current().isPriority(false, 15_000, ITEMS));
+
+            // file troncato a metà scrittura: senza la soglia sarebbe compilato come "nessuna soglia"
+            write(file, "preauth.vip=false\npreauth.amount=\n", 30);
+            assertFalse(policy.reloadIfChanged());
+            assertTrue(policy.current().isPriority(false, 25_000, ITEMS));
+            assertEquals(1, policy.reloads());
+            assertEquals(2, policy.failures());
+            assertInstanceOf(IllegalArgumentException.class, policy.lastFailure());
+        }
+    }
+
+    @Test
+    void backgroundWatcherReloadsWithoutExplicitCalls() throws Exception {
+        Path file = dir.resolve("market.properties");
+        write(file, BASE + "priority.vip=true\n", 0);
+
+        try (ReloadingOrderPolicy policy = new ReloadingOrderPolicy(file, Duration.ofMillis(10))) {
+            write(file, BASE + "priority.vip=false\n", 10);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (policy.current().isPriority(true, 0, ITEMS) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(policy.current().isPriority(true, 0, ITEMS));
+        }
+    }
+
+    @Test
+    void invalidFileIsRejectedAtStartup() throws IOException {
+        Path file = dir.resolve("market.properties");
+        write(file, "priority.unknown=1\n", 0);
+
+        assertThrows(IllegalArgumentException.class, () -> new ReloadingOrderPolicy(file, Duration.ofMillis(10)));
+    }
+
+    @Test
+    void reloadedThresholdAppliesWithOnePrecisionToOrderAndCompactForm() throws IOException {
+        Path file = dir.resolve("market.properties");
+        write(file, BASE + "priority.threshold=100.00\n", 0);
+        SkuDictionary skus = new SkuDictionary();
+
+        try (ReloadingOrderPolicy policy = new ReloadingOrderPolicy(file, Duration.ofHours(1))) {
+            write(file, BASE + "priority.threshold=50.00\n", 10);
+            assertTrue(policy.reloadIfChanged());
+            CompiledPolicy rules = policy.current();
+
+            for (double total : new double[]{49.995, 50.0, 50.004, 50.005, 50.01}) {
+                Order order = new Order("R-" + total, new Customer("r@example.com", false), ITEMS, total);
+                CompactOrder compact = CompactOrder.from(order, skus);
+                assertEquals(rules.isPriority(false, compact.getTotalCents(), ITEMS), rules.isPriority(order),
+                        "totale " + total);
+                assertEquals(rules.authorizationAmount(false, compact.getTotalCents()), rules.authorizationAmount(order),
+                        "totale " + total);
+            }
+        }
+    }
+}
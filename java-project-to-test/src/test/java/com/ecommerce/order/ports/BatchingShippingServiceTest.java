@@ -0,0 +1,151 @@
+package com.ecommerce.order.ports;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingShippingServiceTest {
+
+    // Corriere finto che registra i blocchi ricevuti
+    private static class RecordingCarrier implements ShippingService {
+        final List<Map<String, Boolean>> batches = Collections.synchronizedList(new ArrayList<>());
+        volatile CountDownLatch gate = new CountDownLatch(0);
+        volatile RuntimeException failure;
+
+        @Override
+        public void scheduleDelivery(String orderId, boolean priority) {
+            throw new AssertionError("atteso solo l'invio in blocco");
+        }
+
+        @Override
+        public void scheduleDeliveries(Map<String, Boolean> deliveries) {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            batches.add(new LinkedHashMap<>(deliveries));
+        }
+    }
+
+    @Test
+    void flushesWhenBatchIsFull_inOneCarrierCall() throws Exception {
+        RecordingCarrier carrier = new RecordingCarrier();
+        try (BatchingShippingService shipping = new BatchingShippingService(
+                carrier, 100, 3, Duration.ofSeconds(30), Duration.ofSeconds(30))) {
+            shipping.submit("O-1", false);
+            shipping.submit("O-2", false);
+            shipping.submit("O-3", false).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, carrier.batches.size());
+        assertEquals(List.of("O-1", "O-2", "O-3"), new ArrayList<>(carrier.batches.get(0).keySet()));
+    }
+
+    @Test
+    void priorityDeadline_flushesEarly_andStandardRequestsRideAlong() throws Exception {
+        RecordingCarrier carrier = new RecordingCarrier();
+        try (BatchingShippingService shipping = new BatchingShippingService(
+                carrier, 100, 50, Duration.ofMillis(20), Duration.ofSeconds(30))) {
+            CompletableFuture<Void> standard = shipping.submit("O-STD", false);
+            CompletableFuture<Void> priority = shipping.submit("O-PRIO", true);
+
+            priority.get(5, TimeUnit.SECONDS);
+            standard.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, carrier.batches.size());
+        assertEquals(Map.of("O-PRIO", true, "O-STD", false), carrier.batches.get(0));
+    }
+
+    @Test
+    void submit_blocksWhenQueueIsFull_untilSpaceFrees() throws Exception {
+        RecordingCarrier carrier = new RecordingCarrier();
+        carrier.gate = new CountDownLatch(1);
+        try (BatchingShippingService shipping = new BatchingShippingService(
+                carrier, 1, 1, Duration.ofMillis(1), Duration.ofMillis(1))) {
+            shipping.submit("O-1", false);          // preso dal thread di invio, bloccato sul corriere
+            while (shipping.pending() != 0) {
+                Thread.onSpinWait();
+            }
+            shipping.submit("O-2", false);          // occupa l'unico posto in coda
+
+            CompletableFuture<Void> third = CompletableFuture.runAsync(() -> shipping.submit("O-3", false));
+            Thread.sleep(50);
+            assertFalse(third.isDone());
+
+            carrier.gate.countDown();
+            third.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(3, carrier.batches.size());
+    }
+
+    @Test
+    void carrierFailure_completesFuturesExceptionally_andCloseRejectsNewRequests() throws Exception {
+        RecordingCarrier carrier = new RecordingCarrier();
+        carrier.failure = new IllegalStateException("corriere non raggiungibile");
+        BatchingShippingService shipping = new BatchingShippingService(
+                carrier, 10, 10, Duration.ofMillis(1), Duration.ofMillis(1));
+
+        CompletableFuture<Void> failed = shipping.submit("O-1", true);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+
+        shipping.close();
+        assertThrows(IllegalStateException.class, () -> shipping.scheduleDelivery("O-2", false));
+    }
+
+    @Test
+    void scheduleDelivery_waitsForItsBatch_andRethrowsCarrierFailure() {
+        RecordingCarrier carrier = new RecordingCarrier();
+        try (BatchingShippingService shipping = new BatchingShippingService(
+                carrier, 10, 10, Duration.ofMillis(1), Duration.ofMillis(1))) {
+            shipping.scheduleDelivery("O-1", false);
+            assertEquals(1, carrier.batches.size());
+
+            carrier.failure = new IllegalStateException("corriere non raggiungibile");
+            IllegalStateException ex = assertThrows(IllegalStateException.class,
+                    () -> shipping.scheduleDeliveries(Map.of("O-2", true, "O-3", false)));
+            assertEquals("corriere non raggiungibile", ex.getMessage());
+        }
+    }
+
+    @Test
+    void flusherInterrupted_failsQueuedRequests_andRejectsNewOnes() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        // Il primo invio interrompe il thread che lo esegue, cioè il thread di invio
+        ShippingService carrier = new RecordingCarrier() {
+            @Override
+            public void scheduleDeliveries(Map<String, Boolean> deliveries) {
+                super.scheduleDeliveries(deliveries);
+                Thread.currentThread().interrupt();
+                interrupted.countDown();
+            }
+        };
+        try (BatchingShippingService shipping = new BatchingShippingService(
+                carrier, 100, 2, Duration.ofSeconds(30), Duration.ofSeconds(30))) {
+            shipping.submit("O-1", false);
+            shipping.submit("O-2", false).get(5, TimeUnit.SECONDS);
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+            // Blocco non ancora pieno: il thread di invio si mette in attesa e trova l'interruzione
+
+            CompletableFuture<Void> stranded = shipping.submit("O-3", false);
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> stranded.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, ex.getCause());
+            assertThrows(IllegalStateException.class, () -> shipping.scheduleDelivery("O-4", false));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.ecommerce.order.ports;
+
+import com.ecommerce.order.model.OrderItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingInventoryServiceTest {
+
+    @Mock
+    private InventoryService delegate;
+
+    private final AtomicLong now = new AtomicLong();
+    private CachingInventoryService cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CachingInventoryService(delegate, 2, Duration.ofSeconds(10), now::get);
+    }
+
+    @Test
+    void checkStock_servesSmallerQuantitiesFromCache_afterPositiveAnswer() {
+        when(delegate.checkStock("SKU-1", 5)).thenReturn(true);
+
+        assertTrue(cache.checkStock("SKU-1", 5));
+        assertTrue(cache.checkStock("SKU-1", 3));
+        assertTrue(cache.checkStock("SKU-1", 5));
+
+        verify(delegate, times(1)).checkStock(anyString(), anyInt());
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void checkStock_asksServiceAgain_forLargerQuantityOrAfterTtl() {
+        when(delegate.checkStock("SKU-1", 2)).thenReturn(true);
+        when(delegate.checkStock("SKU-1", 8)).thenReturn(false);
+
+        assertTrue(cache.checkStock("SKU-1", 2));
+        assertFalse(cache.checkStock("SKU-1", 8));
+        assertFalse(cache.checkStock("SKU-1", 9));
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(cache.checkStock("SKU-1", 2));
+
+        verify(delegate, times(2)).checkStock("SKU-1", 2);
+        verify(delegate, times(1)).checkStock("SKU-1", 8);
+    }
+
+    @Test
+    void reserveStock_delegatesAndInvalidatesReservedSkus_evenWhenReservationFails() {
+        when(delegate.checkStock("SKU-1", 1)).thenReturn(true);
+        cache.checkStock("SKU-1", 1);
+        doThrow(new IllegalStateException("esaurito")).when(delegate).reserveStock(any());
+
+        assertThrows(IllegalStateException.class, () -> cache.reserveStock(List.of(new OrderItem("SKU-1", 1))));
+        cache.checkStock("SKU-1", 1);
+
+        verify(delegate, times(2)).checkStock("SKU-1", 1);
+    }
+
+    @Test
+    void checkStock_answerFetchedWhileAnotherSkuIsReserved_isStillCached() {
+        when(delegate.checkStock("SKU-1", 1)).thenAnswer(invocation -> {
+            cache.reserveStock(List.of(new OrderItem("SKU-2", 1)));
+            return true;
+        });
+
+        assertTrue(cache.checkStock("SKU-1", 1));
+        assertTrue(cache.checkStock("SKU-1", 1));
+
+        verify(delegate, times(1)).checkStock("SKU-1", 1);
+    }
+
+    @Test
+    void checkStock_answerFetchedWhileSameSkuIsReserved_isNotCached() {
+        when(delegate.checkStock("SKU-1", 1)).thenAnswer(invocation -> {
+            cache.reserveStock(List.of(new OrderItem("SKU-1", 1)));
+            return true;
+        }).thenReturn(true);
+
+        assertTrue(cache.checkStock("SKU-1", 1));
+        assertTrue(cache.checkStock("SKU-1", 1));
+
+        verify(delegate, times(2)).checkStock("SKU-1", 1);
+    }
+
+    @Test
+    void checkAvailability_sendsOnlyMissesToServiceInOneBulkCall() {
+        when(delegate.checkStock("SKU-1", 4)).thenReturn(true);
+        cache.checkStock("SKU-1", 4);
+        when(delegate.checkAvailability(anyList())).thenReturn(Map.of("SKU-2", false));
+
+        Map<String, Boolean> availability = cache.checkAvailability(
+                List.of(new OrderItem("SKU-1", 3), new OrderItem("SKU-2", 1)));
+
+        assertEquals(Map.of("SKU-1", true, "SKU-2", false), availability);
+        verify(delegate).checkAvailability(argThat(items -> items.size() == 1
+                && items.get(0).getSku().equals("SKU-2") && items.get(0).getQuantity() == 1));
+    }
+
+    @Test
+    void checkAvailability_skusNotCheckedByServiceAreLeftOutAndNotCached() {
+        when(delegate.checkAvailability(anyList())).thenReturn(Map.of("SKU-1", false));
+
+        Map<String, Boolean> availability = cache.checkAvailability(
+                List.of(new OrderItem("SKU-1", 1), new OrderItem("SKU-2", 1)));
+
+        assertEquals(Map.of("SKU-1", false), availability);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void cache_isBounded_andEvictsLeastRecentlyUsedSku() {
+        when(delegate.checkStock(anyString(), eq(1))).thenReturn(true);
+        cache.checkStock("SKU-1", 1);
+        cache.checkStock("SKU-2", 1);
+        cache.checkStock("SKU-1", 1); // SKU-1 torna il più recente
+        cache.checkStock("SKU-3", 1);
+
+        assertEquals(2, cache.size());
+        cache.checkStock("SKU-2", 1);
+        verify(delegate, times(2)).checkStock("SKU-2", 1);
+        verify(delegate, times(1)).checkStock("SKU-1", 1);
+    }
+}
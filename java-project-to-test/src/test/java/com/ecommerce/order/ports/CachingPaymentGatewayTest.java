@@ -0,0 +1,124 @@
+package com.ecommerce.order.ports;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingPaymentGatewayTest {
+
+    @Mock
+    private PaymentGateway delegate;
+
+    private final AtomicLong now = new AtomicLong();
+    private CachingPaymentGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        gateway = new CachingPaymentGateway(delegate, Duration.ofMinutes(1), 2, now::get);
+    }
+
+    @Test
+    void preAuthorize_successIsReusedWithinWindow_andRequestedAgainAfterIt() {
+        when(delegate.preAuthorize(1.0, "vip@example.com")).thenReturn(true);
+
+        assertTrue(gateway.preAuthorize(1.0, "vip@example.com"));
+        assertTrue(gateway.preAuthorize(1.0, "vip@example.com"));
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertTrue(gateway.preAuthorize(1.0, "vip@example.com"));
+
+        verify(delegate, times(2)).preAuthorize(1.0, "vip@example.com");
+        assertEquals(1, gateway.hits());
+        assertEquals(2, gateway.misses());
+    }
+
+    @Test
+    void preAuthorize_declineIsNotCached() {
+        when(delegate.preAuthorize(1.0, "vip@example.com")).thenReturn(false, true);
+
+        assertFalse(gateway.preAuthorize(1.0, "vip@example.com"));
+        assertTrue(gateway.preAuthorize(1.0, "vip@example.com"));
+    }
+
+    @Test
+    void authorize_fullAmountIsNeverCached() {
+        when(delegate.authorize(1.0, "reg@example.com")).thenReturn(true);
+
+        assertTrue(gateway.authorize(1.0, "reg@example.com"));
+        assertTrue(gateway.authorize(1.0, "reg@example.com"));
+
+        verify(delegate, times(2)).authorize(1.0, "reg@example.com");
+        verify(delegate, never()).preAuthorize(anyDouble(), anyString());
+    }
+
+    @Test
+    void voidAuthorization_dropsCachedPreAuthorization() {
+        when(delegate.authorizeOrder("O-1", 1.0, "vip@example.com", true)).thenReturn(true);
+        gateway.authorizeOrder("O-1", 1.0, "vip@example.com", true);
+
+        gateway.voidAuthorization("O-1", 1.0, "vip@example.com");
+        gateway.authorizeOrder("O-1", 1.0, "vip@example.com", true);
+
+        verify(delegate).voidAuthorization("O-1", 1.0, "vip@example.com");
+        verify(delegate, times(2)).authorizeOrder("O-1", 1.0, "vip@example.com", true);
+    }
+
+    @Test
+    void voidAuthorization_ofOrderServedFromCache_doesNotVoidTheOwnersPreAuthorization() {
+        when(delegate.authorizeOrder("O-1", 1.0, "vip@example.com", true)).thenReturn(true);
+        gateway.authorizeOrder("O-1", 1.0, "vip@example.com", true);
+        assertTrue(gateway.authorizeOrder("O-2", 1.0, "vip@example.com", true));
+
+        gateway.voidAuthorization("O-2", 1.0, "vip@example.com");
+
+        verify(delegate, never()).voidAuthorization(anyString(), anyDouble(), anyString());
+        gateway.voidAuthorization("O-1", 1.0, "vip@example.com");
+        verify(delegate, times(1)).voidAuthorization("O-1", 1.0, "vip@example.com");
+    }
+
+    @Test
+    void preAuthorize_concurrentIdenticalRequests_shareOneGatewayCall() throws Exception {
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.authorizeOrder("O-1", 1.0, "vip@example.com", true)).thenAnswer(invocation -> {
+            calling.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = executor.submit(() -> gateway.authorizeOrder("O-1", 1.0, "vip@example.com", true));
+            assertTrue(calling.await(5, TimeUnit.SECONDS));
+            Future<Boolean> second = executor.submit(() -> gateway.authorizeOrder("O-2", 1.0, "vip@example.com", true));
+            while (gateway.coalesced() == 0 && !second.isDone()) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertTrue(second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(delegate, times(1)).authorizeOrder("O-1", 1.0, "vip@example.com", true);
+        assertEquals(1, gateway.coalesced());
+
+        // il chiamante accodato non possiede la pre-autorizzazione: il suo void non arriva al gateway
+        gateway.voidAuthorization("O-2", 1.0, "vip@example.com");
+        verify(delegate, never()).voidAuthorization(anyString(), anyDouble(), anyString());
+    }
+}
@@ -0,0 +1,163 @@
+package com.ecommerce.order.ports;
+
+import com.ecommerce.order.model.OrderItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryInventoryServiceTest {
+
+    @Test
+    void checkStock_reflectsRegisteredStock_andUnknownSkuIsUnavailable() {
+        InMemoryInventoryService inventory = new InMemoryInventoryService(4);
+        inventory.addStock("SKU-1", 5);
+
+        assertTrue(inventory.checkStock("SKU-1", 5));
+        assertFalse(inventory.checkStock("SKU-1", 6));
+        assertFalse(inventory.checkStock("SKU-UNKNOWN", 1));
+    }
+
+    @Test
+    void reserveStock_isAllOrNothing_whenOneItemIsShort() {
+        InMemoryInventoryService inventory = new InMemoryInventoryService(4);
+        inventory.addStock("SKU-1", 5);
+        inventory.addStock("SKU-2", 1);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> inventory.reserveStock(
+                List.of(new OrderItem("SKU-1", 3), new OrderItem("SKU-2", 2))));
+
+        assertTrue(ex.getMessage().contains("SKU-2"));
+        assertEquals(5, inventory.available("SKU-1"));
+        assertEquals(1, inventory.available("SKU-2"));
+    }
+
+    @Test
+    void reserveStock_sumsRepeatedSkusWithinOneOrder() {
+        InMemoryInventoryService inventory = new InMemoryInventoryService(4);
+        inventory.addStock("SKU-1", 4);
+
+        assertThrows(IllegalStateException.class, () -> inventory.reserveStock(
+                List.of(new OrderItem("SKU-1", 3), new OrderItem("SKU-1", 2))));
+        inventory.reserveStock(List.of(new OrderItem("SKU-1", 2), new OrderItem("SKU-1", 2)));
+
+        assertEquals(0, inventory.available("SKU-1"));
+    }
+
+    @Test
+    void reserveStock_rejectsNonPositiveQuantity_withoutTouchingStock() {
+        InMemoryInventoryService inventory = new InMemoryInventoryService(4);
+        inventory.addStock("SKU-1", 4);
+
+        assertThrows(IllegalArgumentException.class, () -> inventory.reserveStock(
+                List.of(new OrderItem("SKU-1", 1), new OrderItem("SKU-1", -3))));
+        assertThrows(IllegalArgumentException.class, () -> inventory.reserveStock(
+                List.of(new OrderItem("SKU-1", 0))));
+
+        assertEquals(4, inventory.available("SKU-1"));
+    }
+
+    @Test
+    void addStock_whenCapacityExhausted_throwsIllegalStateException() {
+        InMemoryInventoryService inventory = new InMemoryInventoryService(1);
+        inventory.addStock("SKU-1", 1);
+
+        assertThrows(IllegalStateException.class, () -> inventory.addStock("SKU-2", 1));
+        inventory.addStock("SKU-1", 1);
+        assertEquals(2, inventory.available("SKU-1"));
+    }
+
+    @Test
+    void reserveStock_underContention_neverOversells_andKeepsMultiItemOrdersAtomic() throws Exception {
+        InMemoryInventoryService inventory = new InMemoryInventoryService(4);
+        inventory.addStock("SKU-A", 1_000);
+        inventory.addStock("SKU-B", 600);
+        List<OrderItem> order = List.of(new OrderItem("SKU-A", 1), new OrderItem("SKU-B", 1));
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> reserved = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            reserved.add(executor.submit(() -> {
+                start.await();
+                int ok = 0;
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        inventory.reserveStock(order);
+                        ok++;
+                    } catch (IllegalStateException e) {
+                        // stock esaurito
+                    }
+                }
+                return ok;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> f : reserved) {
+            total += f.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(600, total);
+        assertEquals(400, inventory.available("SKU-A"));
+        assertEquals(0, inventory.available("SKU-B"));
+    }
+
+    @Test
+    void reserveStock_competingMultiItemOrders_exactlyOneWins() throws Exception {
+        InMemoryInventoryService inventory = new InMemoryInventoryService(4);
+        List<OrderItem> order = List.of(new OrderItem("SKU-A", 1), new OrderItem("SKU-B", 1));
+        List<OrderItem> reversed = List.of(new OrderItem("SKU-B", 1), new OrderItem("SKU-A", 1));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 500; round++) {
+                inventory.addStock("SKU-A", 1);
+                inventory.addStock("SKU-B", 1);
+                CountDownLatch start = new CountDownLatch(1);
+                Future<Boolean> first = executor.submit(() -> reserve(inventory, order, start));
+                Future<Boolean> second = executor.submit(() -> reserve(inventory, reversed, start));
+                start.countDown();
+
+                // mai entrambi falliti per uno stock tolto solo per un istante
+                assertTrue(first.get(5, TimeUnit.SECONDS) ^ second.get(5, TimeUnit.SECONDS), "round " + round);
+                assertEquals(0, inventory.available("SKU-A"));
+                assertEquals(0, inventory.available("SKU-B"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean reserve(InMemoryInventoryService inventory, List<OrderItem> items, CountDownLatch start)
+            throws InterruptedException {
+        start.await();
+        try {
+            inventory.reserveStock(items);
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    @Test
+    void reserveStock_quantitiesSummingPastIntRange_areShortNotOverflowed() {
+        InMemoryInventoryService inventory = new InMemoryInventoryService(4);
+        inventory.addStock("SKU-1", 10);
+
+        assertThrows(IllegalStateException.class, () -> inventory.reserveStock(
+                List.of(new OrderItem("SKU-1", Integer.MAX_VALUE), new OrderItem("SKU-1", Integer.MAX_VALUE))));
+        assertEquals(10, inventory.available("SKU-1"));
+        assertThrows(IllegalArgumentException.class, () -> inventory.addStock("SKU-1", Integer.MAX_VALUE));
+        assertEquals(10, inventory.available("SKU-1"));
+    }
+}
@@ -0,0 +1,308 @@
+package com.ecommerce.order.ports;
+
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.service.OutOfStockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientPortsTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Magazzino finto: la prima chiamata impiega slowMillis, le successive fastMillis
+    private static class SlowFirstInventory implements InventoryService {
+        final AtomicInteger calls = new AtomicInteger();
+        final long slowMillis;
+        final long fastMillis;
+
+        SlowFirstInventory(long slowMillis, long fastMillis) {
+            this.slowMillis = slowMillis;
+            this.fastMillis = fastMillis;
+        }
+
+        @Override
+        public boolean checkStock(String sku, int quantity) {
+            sleep(calls.getAndIncrement() == 0 ? slowMillis : fastMillis);
+            return true;
+        }
+
+        @Override
+        public void reserveStock(List<OrderItem> items) {
+            calls.incrementAndGet();
+            sleep(slowMillis);
+        }
+    }
+
+    // Gateway finto con latenza fissa ed esito configurabile
+    private static class FakeGateway implements PaymentGateway {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile long latencyMillis;
+        volatile boolean failing;
+
+        @Override
+        public boolean authorize(double amount, String customerEmail) {
+            calls.incrementAndGet();
+            sleep(latencyMillis);
+            if (failing) {
+                throw new UncheckedIOException(new IOException("gateway non raggiungibile"));
+            }
+            return true;
+        }
+
+        final List<String> voided = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void voidAuthorization(String orderId, double amount, String customerEmail) {
+            voided.add(orderId);
+        }
+    }
+
+    @Test
+    void slowCallFailsAtDeadline() {
+        FakeGateway gateway = new FakeGateway();
+        gateway.latencyMillis = 2_000;
+        ResilientPaymentGateway resilient = new ResilientPaymentGateway(gateway,
+                ResiliencePolicy.defaults().withTimeout(Duration.ofMillis(50)), executor);
+
+        long start = System.nanoTime();
+        assertThrows(PortUnavailableException.class, () -> resilient.authorize(10.0, "a@b.it"));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_000);
+        assertEquals(1, resilient.metrics().timeouts());
+    }
+
+    @Test
+    void hedgedReadReturnsFasterDuplicate() {
+        SlowFirstInventory inventory = new SlowFirstInventory(2_000, 0);
+        ResilientInventoryService resilient = new ResilientInventoryService(inventory,
+                ResiliencePolicy.defaults().withHedgeDelay(Duration.ofMillis(20)), executor);
+
+        long start = System.nanoTime();
+        assertTrue(resilient.checkStock("SKU-1", 1));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_000);
+        assertEquals(2, inventory.calls.get());
+        assertEquals(1, resilient.metrics().hedges());
+        assertEquals(1, resilient.metrics().hedgeWins());
+    }
+
+    @Test
+    void fastReadIsNotHedged() {
+        SlowFirstInventory inventory = new SlowFirstInventory(0, 0);
+        ResilientInventoryService resilient = new ResilientInventoryService(inventory,
+                ResiliencePolicy.defaults().withHedgeDelay(Duration.ofMillis(200)), executor);
+
+        assertTrue(resilient.checkStock("SKU-1", 1));
+
+        assertEquals(1, inventory.calls.get());
+        assertEquals(0, resilient.metrics().hedges());
+    }
+
+    @Test
+    void reservationIsNeverHedged() {
+        SlowFirstInventory inventory = new SlowFirstInventory(100, 0);
+        ResilientInventoryService resilient = new ResilientInventoryService(inventory,
+                ResiliencePolicy.defaults().withHedgeDelay(Duration.ofMillis(10)), executor);
+
+        resilient.reserveStock(List.of(new OrderItem("SKU-1", 1)));
+
+        assertEquals(1, inventory.calls.get());
+        assertEquals(0, resilient.metrics().hedges());
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailuresAndRejectsWithoutCalling() {
+        FakeGateway gateway = new FakeGateway();
+        gateway.failing = true;
+        ResilientPaymentGateway resilient = new ResilientPaymentGateway(gateway,
+                ResiliencePolicy.defaults().withCircuitBreaker(3, Duration.ofSeconds(30)), executor);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(UncheckedIOException.class, () -> resilient.authorize(10.0, "a@b.it"));
+        }
+        assertThrows(PortUnavailableException.class, () -> resilient.authorize(10.0, "a@b.it"));
+
+        assertEquals(3, gateway.calls.get());
+        assertEquals(1, resilient.metrics().trips());
+        assertEquals(1, resilient.metrics().rejected());
+        assertEquals(CircuitBreaker.State.OPEN, resilient.metrics().circuitState());
+    }
+
+    @Test
+    void halfOpenProbeClosesCircuitOnSuccess() {
+        FakeGateway gateway = new FakeGateway();
+        gateway.failing = true;
+        ResilientPaymentGateway resilient = new ResilientPaymentGateway(gateway,
+                ResiliencePolicy.defaults().withCircuitBreaker(1, Duration.ofMillis(50)), executor);
+
+        assertThrows(UncheckedIOException.class, () -> resilient.authorize(10.0, "a@b.it"));
+        assertEquals(CircuitBreaker.State.OPEN, resilient.metrics().circuitState());
+
+        sleep(100);
+        gateway.failing = false;
+        assertTrue(resilient.authorize(10.0, "a@b.it"));
+
+        assertEquals(CircuitBreaker.State.CLOSED, resilient.metrics().circuitState());
+    }
+
+    @Test
+    void halfOpenAdmitsSingleProbeAndReopensOnFailure() {
+        long[] now = {0};
+        CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), () -> now[0]);
+
+        breaker.onFailure(breaker.acquire());
+        breaker.onFailure(breaker.acquire());
+        assertFalse(breaker.tryAcquire());
+
+        now[0] = Duration.ofSeconds(10).toNanos();
+        CircuitBreaker.Permit probe = breaker.acquire();
+        assertEquals(CircuitBreaker.Permit.PROBE, probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.trips());
+    }
+
+    @Test
+    void lateSuccessOfAnEarlierCallDoesNotCloseAnOpenCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofSeconds(10), () -> 0);
+        CircuitBreaker.Permit slow = breaker.acquire();
+        CircuitBreaker.Permit failing = breaker.acquire();
+
+        breaker.onFailure(failing);
+        breaker.onSuccess(slow);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void domainExceptionsPassThroughWithoutOpeningTheCircuit() {
+        InventoryService outOfStock = new InventoryService() {
+            @Override
+            public boolean checkStock(String sku, int quantity) {
+                return false;
+            }
+
+            @Override
+            public void reserveStock(List<OrderItem> items) {
+                throw new OutOfStockException(items.get(0).getSku());
+            }
+        };
+        ResilientInventoryService resilient = new ResilientInventoryService(outOfStock,
+                ResiliencePolicy.defaults().withCircuitBreaker(2, Duration.ofSeconds(30)), executor);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(OutOfStockException.class, () -> resilient.reserveStock(List.of(new OrderItem("SKU-1", 1))));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, resilient.metrics().circuitState());
+        assertEquals(0, resilient.metrics().trips());
+    }
+
+    @Test
+    void halfOpenProbeRejectedByTheExecutorIsReleased() {
+        FakeGateway gateway = new FakeGateway();
+        gateway.failing = true;
+        boolean[] rejecting = {false};
+        Executor maybeRejecting = task -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException("pool saturo");
+            }
+            executor.execute(task);
+        };
+        ResilientPaymentGateway resilient = new ResilientPaymentGateway(gateway,
+                ResiliencePolicy.defaults().withCircuitBreaker(1, Duration.ofMillis(50)), maybeRejecting);
+
+        assertThrows(UncheckedIOException.class, () -> resilient.authorize(10.0, "a@b.it"));
+        sleep(100);
+        rejecting[0] = true;
+        assertThrows(RejectedExecutionException.class, () -> resilient.authorize(10.0, "a@b.it"));
+        assertEquals(CircuitBreaker.State.OPEN, resilient.metrics().circuitState());
+
+        rejecting[0] = false;
+        gateway.failing = false;
+        assertTrue(resilient.authorize(10.0, "a@b.it"));
+        assertEquals(CircuitBreaker.State.CLOSED, resilient.metrics().circuitState());
+    }
+
+    @Test
+    void genericRuntimeExceptionsOpenTheCircuitByDefault() {
+        InventoryService degraded = new InventoryService() {
+            @Override
+            public boolean checkStock(String sku, int quantity) {
+                throw new IllegalStateException("connessione al DB chiusa");
+            }
+
+            @Override
+            public void reserveStock(List<OrderItem> items) {
+            }
+        };
+        ResilientInventoryService resilient = new ResilientInventoryService(degraded,
+                ResiliencePolicy.defaults().withCircuitBreaker(2, Duration.ofSeconds(30)), executor);
+
+        assertThrows(IllegalStateException.class, () -> resilient.checkStock("SKU-1", 1));
+        assertThrows(IllegalStateException.class, () -> resilient.checkStock("SKU-1", 1));
+        assertThrows(PortUnavailableException.class, () -> resilient.checkStock("SKU-1", 1));
+
+        assertEquals(CircuitBreaker.State.OPEN, resilient.metrics().circuitState());
+    }
+
+    @Test
+    void authorizationGrantedAfterTheDeadlineIsVoided() {
+        FakeGateway gateway = new FakeGateway();
+        gateway.latencyMillis = 200;
+        ResilientPaymentGateway resilient = new ResilientPaymentGateway(gateway,
+                ResiliencePolicy.defaults().withTimeout(Duration.ofMillis(20)), executor);
+
+        assertThrows(PortUnavailableException.class, () -> resilient.authorizeOrder("O-1", 10.0, "a@b.it", false));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (gateway.voided.isEmpty() && System.nanoTime() < deadline) {
+            sleep(10);
+        }
+        assertEquals(List.of("O-1"), gateway.voided);
+        assertEquals(1, resilient.metrics().lateResults());
+        assertEquals(0, resilient.metrics().lateVoidFailures());
+    }
+
+    @Test
+    void authorizationAnsweredInTimeIsNotVoided() {
+        FakeGateway gateway = new FakeGateway();
+        ResilientPaymentGateway resilient = new ResilientPaymentGateway(gateway, ResiliencePolicy.defaults(), executor);
+
+        assertTrue(resilient.authorizeOrder("O-2", 10.0, "a@b.it", false));
+
+        assertTrue(gateway.voided.isEmpty());
+        assertEquals(0, resilient.metrics().lateResults());
+    }
+}
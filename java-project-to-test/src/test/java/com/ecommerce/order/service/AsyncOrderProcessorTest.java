@@ -0,0 +1,137 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.ports.InventoryService;
+import com.ecommerce.order.ports.PaymentGateway;
+import com.ecommerce.order.ports.ShippingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncOrderProcessorTest {
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private InventoryService inventoryService;
+
+    // preAuthorize (VIP) ricade di default su authorize stubbato
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private ShippingService shippingService;
+
+    private ExecutorService executor;
+    private AsyncOrderProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        processor = new AsyncOrderProcessor(inventoryService, paymentGateway, shippingService, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void processOrderAsync_whenVipAndPaymentSucceeds_completesConfirmed_andReservesAfterAuthorization() {
+        Customer vip = new Customer("vip@example.com", true);
+        Order order = new Order("A-1", vip, List.of(new OrderItem("SKU-1", 2)), 40.0);
+        when(inventoryService.checkStock("SKU-1", 2)).thenReturn(true);
+        when(paymentGateway.authorize(1.0, vip.getEmail())).thenReturn(true);
+
+        assertEquals("ORDER_CONFIRMED", processor.processOrderAsync(order).join());
+
+        InOrder inOrder = inOrder(inventoryService, paymentGateway, shippingService);
+        inOrder.verify(inventoryService).checkStock("SKU-1", 2);
+        inOrder.verify(paymentGateway).authorize(1.0, vip.getEmail());
+        inOrder.verify(inventoryService).reserveStock(order.getItems());
+        inOrder.verify(shippingService).scheduleDelivery("A-1", true);
+    }
+
+    @Test
+    void processOrderAsync_whenPaymentDeclined_completesDeclined_withoutReservationOrShipping() {
+        Customer regular = new Customer("reg@example.com", false);
+        Order order = new Order("A-2", regular, List.of(new OrderItem("SKU-2", 1)), 150.0);
+        when(inventoryService.checkStock("SKU-2", 1)).thenReturn(true);
+        when(paymentGateway.authorize(150.0, regular.getEmail())).thenReturn(false);
+
+        assertEquals("PAYMENT_DECLINED", processor.processOrderAsync(order).join());
+
+        verify(inventoryService, never()).reserveStock(any());
+        verifyNoInteractions(shippingService);
+    }
+
+    @Test
+    void processOrderAsync_whenStockMissing_completesExceptionallyWithIllegalStateException() {
+        Order order = new Order("A-3", new Customer("c@example.com", false),
+                List.of(new OrderItem("MISSING-SKU", 3)), 20.0);
+        when(inventoryService.checkStock("MISSING-SKU", 3)).thenReturn(false);
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> processor.processOrderAsync(order).join());
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertTrue(ex.getCause().getMessage().contains("MISSING-SKU"));
+        verifyNoInteractions(paymentGateway, shippingService);
+    }
+
+    @Test
+    void processOrderAsync_whenShippingFailsAfterAuthorization_voidsByOrderId_andFailsWithOriginalError() {
+        Customer regular = new Customer("reg@example.com", false);
+        Order order = new Order("A-4", regular, List.of(new OrderItem("SKU-4", 1)), 150.0);
+        when(inventoryService.checkStock("SKU-4", 1)).thenReturn(true);
+        when(paymentGateway.authorize(150.0, regular.getEmail())).thenReturn(true);
+        IllegalStateException carrierDown = new IllegalStateException("corriere non disponibile");
+        doThrow(carrierDown).when(shippingService).scheduleDelivery("A-4", true);
+        doNothing().when(paymentGateway).voidAuthorization("A-4", 150.0, regular.getEmail());
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> processor.processOrderAsync(order).join());
+
+        assertSame(carrierDown, ex.getCause());
+        verify(paymentGateway).authorizeOrder("A-4", 150.0, regular.getEmail(), false);
+        verify(paymentGateway).voidAuthorization("A-4", 150.0, regular.getEmail());
+    }
+
+    @Test
+    void processOrderAsync_whenVoidFails_keepsReservationErrorWithVoidFailureSuppressed() {
+        Customer regular = new Customer("reg@example.com", false);
+        Order order = new Order("A-5", regular, List.of(new OrderItem("SKU-5", 1)), 150.0);
+        when(inventoryService.checkStock("SKU-5", 1)).thenReturn(true);
+        when(paymentGateway.authorize(150.0, regular.getEmail())).thenReturn(true);
+        OutOfStockException soldOut = new OutOfStockException("SKU-5");
+        doThrow(soldOut).when(inventoryService).reserveStock(order.getItems());
+
+        // voidAuthorization non ridefinito: il default rilancia UnsupportedOperationException
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> processor.processOrderAsync(order).join());
+
+        assertSame(soldOut, ex.getCause());
+        assertInstanceOf(UnsupportedOperationException.class, soldOut.getSuppressed()[0]);
+        verifyNoInteractions(shippingService);
+    }
+
+    @Test
+    void close_leavesCallerSuppliedExecutorRunning() {
+        processor.close();
+
+        assertFalse(executor.isShutdown());
+    }
+}
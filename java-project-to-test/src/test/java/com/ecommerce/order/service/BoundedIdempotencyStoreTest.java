@@ -0,0 +1,45 @@
+package com.ecommerce.order.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedIdempotencyStoreTest {
+
+    @Test
+    void putIfAbsent_returnsExistingEntry_forSameOrderId() {
+        BoundedIdempotencyStore store = new BoundedIdempotencyStore(4);
+        CompletableFuture<String> first = new CompletableFuture<>();
+
+        assertNull(store.putIfAbsent("O-1", first));
+        assertSame(first, store.putIfAbsent("O-1", new CompletableFuture<>()));
+    }
+
+    @Test
+    void eviction_dropsOldestCompletedEntries_butNeverInFlightOnes() {
+        BoundedIdempotencyStore store = new BoundedIdempotencyStore(2);
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+        store.putIfAbsent("O-1", inFlight);
+        store.putIfAbsent("O-2", CompletableFuture.completedFuture("ORDER_CONFIRMED"));
+        store.putIfAbsent("O-3", CompletableFuture.completedFuture("ORDER_CONFIRMED"));
+
+        assertEquals(2, store.size());
+        assertSame(inFlight, store.putIfAbsent("O-1", new CompletableFuture<>()));
+        assertNull(store.putIfAbsent("O-2", new CompletableFuture<>()));
+    }
+
+    @Test
+    void remove_onlyRemovesTheGivenExecution() {
+        BoundedIdempotencyStore store = new BoundedIdempotencyStore(2);
+        CompletableFuture<String> current = new CompletableFuture<>();
+        store.putIfAbsent("O-1", current);
+
+        store.remove("O-1", new CompletableFuture<>());
+        assertSame(current, store.putIfAbsent("O-1", new CompletableFuture<>()));
+
+        store.remove("O-1", current);
+        assertEquals(0, store.size());
+    }
+}
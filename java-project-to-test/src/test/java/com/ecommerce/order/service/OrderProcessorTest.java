@@ -1,23 +1,45 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.order.journal.JournalStage;
+import com.ecommerce.order.journal.MappedOrderJournal;
+import com.ecommerce.order.metrics.InMemoryOrderMetrics;
+import com.ecommerce.order.metrics.Stage;
+import com.ecommerce.order.model.CompactOrder;
 import com.ecommerce.order.model.Customer;
 import com.ecommerce.order.model.Order;
 import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.model.SkuDictionary;
+import com.ecommerce.order.policy.CompiledPolicy;
 import com.ecommerce.order.ports.InventoryService;
 import com.ecommerce.order.ports.PaymentGateway;
 import com.ecommerce.order.ports.ShippingService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.eq;
@@ -26,11 +48,13 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class OrderProcessorTest {
 
-    @Mock
+    // Le chiamate reali ai metodi di default (checkAvailability) ricadono su checkStock stubbato
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
     private InventoryService inventoryService;
 
-    @Mock
-    private PaymentGateway paymentGateway;
+    // preAuthorize (VIP) ricade di default su authorize stubbato
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private VoidingPaymentGateway paymentGateway;
 
     @Mock
     private ShippingService shippingService;
@@ -38,6 +62,13 @@ class OrderProcessorTest {
     @InjectMocks
     private OrderProcessor orderProcessor;
 
+    // Gateway che implementa voidAuthorization (senza effetti), come richiesto dalla modalità speculativa
+    abstract static class VoidingPaymentGateway implements PaymentGateway {
+        @Override
+        public void voidAuthorization(String orderId, double amount, String customerEmail) {
+        }
+    }
+
     // ---------------------------------------------------------------------
     // Helper builders to keep tests readable
     // ---------------------------------------------------------------------
@@ -352,4 +383,733 @@ class OrderProcessorTest {
         assertEquals("DB error", ex.getMessage());
         verify(shippingService, never()).scheduleDelivery(anyString(), anyBoolean());
     }
-}
\ No newline at end of file
+
+    // ---------------------------------------------------------------------
+    // 11. Bulk availability – a single inventory round trip for the whole cart
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_usesSingleBulkAvailabilityCall_insteadOfPerItemChecks() {
+        InventoryService bulkInventory = mock(InventoryService.class);
+        OrderProcessor processor = new OrderProcessor(bulkInventory, paymentGateway, shippingService);
+        Customer regular = new CustomerBuilder().vip(false).email("bulk@example.com").build();
+        Order order = new OrderBuilder()
+                .customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-X1").quantity(1).build())
+                .addItem(new OrderItemBuilder().sku("SKU-X2").quantity(4).build())
+                .totalAmount(30.0)
+                .build();
+
+        Map<String, Boolean> availability = new LinkedHashMap<>();
+        availability.put("SKU-X1", true);
+        availability.put("SKU-X2", true);
+        when(bulkInventory.checkAvailability(order.getItems())).thenReturn(availability);
+        when(paymentGateway.authorize(30.0, regular.getEmail())).thenReturn(true);
+
+        assertEquals("ORDER_CONFIRMED", processor.processOrder(order));
+        verify(bulkInventory).checkAvailability(order.getItems());
+        verify(bulkInventory, never()).checkStock(anyString(), anyInt());
+        verify(bulkInventory).reserveStock(order.getItems());
+    }
+
+    // ---------------------------------------------------------------------
+    // 12. Bulk availability – several SKUs missing, the first one in cart order is reported
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_whenBulkReportsSeveralMissing_throwsNamingFirstMissingSkuInCartOrder() {
+        InventoryService bulkInventory = mock(InventoryService.class);
+        OrderProcessor processor = new OrderProcessor(bulkInventory, paymentGateway, shippingService);
+        Order order = new OrderBuilder()
+                .addItem(new OrderItemBuilder().sku("SKU-OK").quantity(1).build())
+                .addItem(new OrderItemBuilder().sku("SKU-GONE-1").quantity(1).build())
+                .addItem(new OrderItemBuilder().sku("SKU-GONE-2").quantity(1).build())
+                .totalAmount(10.0)
+                .build();
+
+        Map<String, Boolean> availability = new LinkedHashMap<>();
+        availability.put("SKU-GONE-2", false);
+        availability.put("SKU-OK", true);
+        availability.put("SKU-GONE-1", false);
+        when(bulkInventory.checkAvailability(order.getItems())).thenReturn(availability);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> processor.processOrder(order));
+        assertTrue(ex.getMessage().contains("SKU-GONE-1"));
+        verifyNoInteractions(paymentGateway, shippingService);
+        verify(bulkInventory, never()).reserveStock(any());
+    }
+
+    // ---------------------------------------------------------------------
+    // 13. Default bulk implementation – falls back to checkStock, summing repeated SKUs,
+    //     and stops at the first missing SKU like the per-item loop did
+    // ---------------------------------------------------------------------
+    @Test
+    void checkAvailability_defaultImplementation_fallsBackToCheckStockPerSku() {
+        List<OrderItem> items = List.of(
+                new OrderItemBuilder().sku("SKU-D1").quantity(2).build(),
+                new OrderItemBuilder().sku("SKU-D2").quantity(1).build(),
+                new OrderItemBuilder().sku("SKU-D1").quantity(3).build(),
+                new OrderItemBuilder().sku("SKU-D3").quantity(1).build());
+        when(inventoryService.checkStock("SKU-D1", 5)).thenReturn(true);
+        when(inventoryService.checkStock("SKU-D2", 1)).thenReturn(false);
+
+        Map<String, Boolean> availability = inventoryService.checkAvailability(items);
+
+        assertEquals(List.of("SKU-D1", "SKU-D2"), new ArrayList<>(availability.keySet()));
+        assertTrue(availability.get("SKU-D1"));
+        assertFalse(availability.get("SKU-D2"));
+        verify(inventoryService, never()).checkStock(eq("SKU-D3"), anyInt());
+    }
+
+    // ---------------------------------------------------------------------
+    // 14. Speculative authorization – confirmed, same calls as the sequential flow
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_speculative_whenStockAvailableAndPaymentSucceeds_returnsConfirmed() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            orderProcessor.withSpeculativeAuthorization(executor);
+            Customer regular = new CustomerBuilder().vip(false).email("spec@example.com").build();
+            Order order = new OrderBuilder()
+                    .customer(regular)
+                    .addItem(new OrderItemBuilder().sku("SKU-S1").quantity(2).build())
+                    .totalAmount(130.0)
+                    .build();
+            when(inventoryService.checkStock("SKU-S1", 2)).thenReturn(true);
+            when(paymentGateway.authorize(130.0, regular.getEmail())).thenReturn(true);
+
+            assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order));
+            verify(inventoryService).reserveStock(order.getItems());
+            verify(shippingService).scheduleDelivery(order.getId(), true);
+            verify(paymentGateway, never()).voidAuthorization(anyString(), anyDouble(), anyString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 15. Speculative authorization – stock missing after authorization: void and throw
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_speculative_whenStockMissing_voidsGrantedAuthorization_andThrows() {
+        orderProcessor.withSpeculativeAuthorization(Runnable::run); // authorization completes first
+        Customer vip = new CustomerBuilder().vip(true).email("spec-vip@example.com").build();
+        Order order = new OrderBuilder()
+                .customer(vip)
+                .addItem(new OrderItemBuilder().sku("SKU-GONE").quantity(1).build())
+                .totalAmount(20.0)
+                .build();
+        when(paymentGateway.authorize(1.0, vip.getEmail())).thenReturn(true);
+        when(inventoryService.checkStock("SKU-GONE", 1)).thenReturn(false);
+        
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> orderProcessor.processOrder(order));
+        assertTrue(ex.getMessage().contains("SKU-GONE"));
+        verify(paymentGateway).voidAuthorization(order.getId(), 1.0, vip.getEmail());
+        verify(inventoryService, never()).reserveStock(any());
+        verifyNoInteractions(shippingService);
+    }
+
+    // ---------------------------------------------------------------------
+    // 16. Speculative authorization – declined payment: nothing to void, no reservation
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_speculative_whenPaymentDeclined_returnsPaymentDeclined_withoutVoidOrReservation() {
+        orderProcessor.withSpeculativeAuthorization(Runnable::run);
+        Customer regular = new CustomerBuilder().vip(false).email("spec-decl@example.com").build();
+        Order order = new OrderBuilder()
+                .customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-S2").quantity(1).build())
+                .totalAmount(60.0)
+                .build();
+        when(paymentGateway.authorize(60.0, regular.getEmail())).thenReturn(false);
+        when(inventoryService.checkStock("SKU-S2", 1)).thenReturn(true);
+
+        assertEquals("PAYMENT_DECLINED", orderProcessor.processOrder(order));
+        verify(paymentGateway, never()).voidAuthorization(anyString(), anyDouble(), anyString());
+        verify(inventoryService, never()).reserveStock(any());
+        verifyNoInteractions(shippingService);
+    }
+
+    // ---------------------------------------------------------------------
+    // 17. Batch – one stock query, one reservation and one shipping submission for the batch
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrders_groupsStockReservationAndShipping_andReportsPerOrderResults() {
+        Customer vip = new CustomerBuilder().vip(true).email("batch-vip@example.com").build();
+        Customer regular = new CustomerBuilder().vip(false).email("batch-reg@example.com").build();
+        OrderItem a = new OrderItemBuilder().sku("SKU-A").quantity(1).build();
+        OrderItem b = new OrderItemBuilder().sku("SKU-B").quantity(2).build();
+        OrderItem a2 = new OrderItemBuilder().sku("SKU-A").quantity(3).build();
+        Order first = new OrderBuilder().id("B-1").customer(vip).addItem(a).addItem(b).totalAmount(30.0).build();
+        Order second = new OrderBuilder().id("B-2").customer(regular).addItem(a2).totalAmount(90.0).build();
+        Order third = new OrderBuilder().id("B-3").customer(regular).addItem(b).totalAmount(300.0).build();
+
+        when(inventoryService.checkStock("SKU-A", 4)).thenReturn(true);
+        when(inventoryService.checkStock("SKU-B", 4)).thenReturn(true);
+        when(paymentGateway.authorize(1.0, vip.getEmail())).thenReturn(true);
+        when(paymentGateway.authorize(90.0, regular.getEmail())).thenReturn(false);
+        when(paymentGateway.authorize(300.0, regular.getEmail())).thenReturn(true);
+
+        Map<String, String> results = orderProcessor.processOrders(List.of(first, second, third));
+
+        assertEquals(List.of("B-1", "B-2", "B-3"), new ArrayList<>(results.keySet()));
+        assertEquals("ORDER_CONFIRMED", results.get("B-1"));
+        assertEquals("PAYMENT_DECLINED", results.get("B-2"));
+        assertEquals("ORDER_CONFIRMED", results.get("B-3"));
+        verify(inventoryService).reserveStock(List.of(a, b, b));
+        Map<String, Boolean> deliveries = new LinkedHashMap<>();
+        deliveries.put("B-1", true);
+        deliveries.put("B-3", true);
+        verify(shippingService).scheduleDeliveries(deliveries);
+        verify(shippingService, never()).scheduleDelivery(anyString(), anyBoolean());
+    }
+
+    // ---------------------------------------------------------------------
+    // 18. Batch – SKU short for the whole batch: affected orders are re-checked one by one
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrders_whenSkuShortForBatch_rechecksAffectedOrders_andMarksMissingOnesOutOfStock() {
+        Customer regular = new CustomerBuilder().vip(false).email("batch-short@example.com").build();
+        OrderItem one = new OrderItemBuilder().sku("SKU-S").quantity(1).build();
+        OrderItem two = new OrderItemBuilder().sku("SKU-S").quantity(2).build();
+        Order first = new OrderBuilder().id("S-1").customer(regular).addItem(one).totalAmount(10.0).build();
+        Order second = new OrderBuilder().id("S-2").customer(regular).addItem(two).totalAmount(20.0).build();
+
+        when(inventoryService.checkStock("SKU-S", 3)).thenReturn(false);
+        when(inventoryService.checkStock("SKU-S", 1)).thenReturn(true);
+        when(inventoryService.checkStock("SKU-S", 2)).thenReturn(false);
+        when(paymentGateway.authorize(10.0, regular.getEmail())).thenReturn(true);
+
+        Map<String, String> results = orderProcessor.processOrders(List.of(first, second));
+
+        assertEquals("ORDER_CONFIRMED", results.get("S-1"));
+        assertEquals("OUT_OF_STOCK", results.get("S-2"));
+        verify(inventoryService).reserveStock(first.getItems());
+        verify(paymentGateway, never()).authorize(20.0, regular.getEmail());
+        verify(shippingService).scheduleDelivery("S-1", false);
+    }
+
+    // ---------------------------------------------------------------------
+    // 19. Metrics – per-stage latency, outcome counters, out-of-stock by SKU, in-flight gauge
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_withMetrics_recordsStagesOutcomesAndOutOfStockSkus() {
+        InMemoryOrderMetrics metrics = new InMemoryOrderMetrics();
+        orderProcessor.withMetrics(metrics);
+        Customer regular = new CustomerBuilder().vip(false).email("metrics@example.com").build();
+        Order confirmed = new OrderBuilder().customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-OK").quantity(1).build()).totalAmount(50.0).build();
+        Order missing = new OrderBuilder().customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-KO").quantity(1).build()).totalAmount(50.0).build();
+        when(inventoryService.checkStock("SKU-OK", 1)).thenReturn(true);
+        when(inventoryService.checkStock("SKU-KO", 1)).thenReturn(false);
+        when(paymentGateway.authorize(50.0, regular.getEmail())).thenReturn(true);
+
+        orderProcessor.processOrder(confirmed);
+        assertThrows(OutOfStockException.class, () -> orderProcessor.processOrder(missing));
+
+        assertEquals(2, metrics.latency(Stage.CHECK_STOCK).count());
+        assertEquals(1, metrics.latency(Stage.AUTHORIZE).count());
+        assertEquals(1, metrics.latency(Stage.RESERVE_STOCK).count());
+        assertEquals(1, metrics.latency(Stage.SCHEDULE_DELIVERY).count());
+        assertEquals(1, metrics.outcomeCount("ORDER_CONFIRMED"));
+        assertEquals(1, metrics.outcomeCount("OUT_OF_STOCK"));
+        assertEquals(1, metrics.outOfStockCount("SKU-KO"));
+        assertEquals(0, metrics.inFlight());
+        assertTrue(metrics.toString().contains("out-of-stock SKU-KO 1"));
+    }
+
+    // ---------------------------------------------------------------------
+    // 20. Idempotency – a completed order is replayed without touching any port
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_withIdempotencyStore_replaysCompletedResult_withoutCallingPorts() {
+        orderProcessor.withIdempotencyStore(new BoundedIdempotencyStore(16));
+        Customer regular = new CustomerBuilder().vip(false).email("idem@example.com").build();
+        Order order = new OrderBuilder().id("IDEM-1").customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-I").quantity(1).build()).totalAmount(40.0).build();
+        when(inventoryService.checkStock("SKU-I", 1)).thenReturn(true);
+        when(paymentGateway.authorize(40.0, regular.getEmail())).thenReturn(true);
+
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order));
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order));
+        assertEquals(Map.of("IDEM-1", "ORDER_CONFIRMED"), orderProcessor.processOrders(List.of(order)));
+
+        verify(inventoryService, times(1)).checkStock("SKU-I", 1);
+        verify(paymentGateway, times(1)).authorize(40.0, regular.getEmail());
+        verify(shippingService, times(1)).scheduleDelivery("IDEM-1", false);
+        verify(shippingService, never()).scheduleDeliveries(any());
+    }
+
+    // ---------------------------------------------------------------------
+    // 21. Idempotency – a stock failure is not remembered, the retry runs again
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_withIdempotencyStore_doesNotRememberFailures() {
+        orderProcessor.withIdempotencyStore(new BoundedIdempotencyStore(16));
+        Order order = new OrderBuilder().id("IDEM-2")
+                .addItem(new OrderItemBuilder().sku("SKU-LATE").quantity(1).build()).totalAmount(10.0).build();
+        when(inventoryService.checkStock("SKU-LATE", 1)).thenReturn(false, true);
+        when(paymentGateway.authorize(10.0, order.getCustomer().getEmail())).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> orderProcessor.processOrder(order));
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order));
+        verify(inventoryService, times(2)).checkStock("SKU-LATE", 1);
+    }
+
+    // ---------------------------------------------------------------------
+    // 22. Idempotency – concurrent duplicates coalesce onto one execution
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_withIdempotencyStore_coalescesConcurrentDuplicates() throws Exception {
+        IdempotencyStore store = new BoundedIdempotencyStore(16);
+        CountDownLatch duplicateWaiting = new CountDownLatch(1);
+        orderProcessor.withIdempotencyStore(new IdempotencyStore() {
+            @Override
+            public CompletableFuture<String> putIfAbsent(String orderId, CompletableFuture<String> pending) {
+                CompletableFuture<String> existing = store.putIfAbsent(orderId, pending);
+                if (existing != null) {
+                    duplicateWaiting.countDown();
+                }
+                return existing;
+            }
+
+            @Override
+            public void remove(String orderId, CompletableFuture<String> pending) {
+                store.remove(orderId, pending);
+            }
+        });
+        Customer regular = new CustomerBuilder().vip(false).email("idem-conc@example.com").build();
+        Order order = new OrderBuilder().id("IDEM-3").customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-C").quantity(1).build()).totalAmount(70.0).build();
+        CountDownLatch authorizing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(inventoryService.checkStock("SKU-C", 1)).thenReturn(true);
+        when(paymentGateway.authorize(70.0, regular.getEmail())).thenAnswer(invocation -> {
+            authorizing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> orderProcessor.processOrder(order));
+            assertTrue(authorizing.await(5, TimeUnit.SECONDS));
+            Future<String> duplicate = executor.submit(() -> orderProcessor.processOrder(order));
+            // la prima elaborazione resta ferma in authorize finché il duplicato non la trova in corso
+            assertTrue(duplicateWaiting.await(5, TimeUnit.SECONDS));
+            assertFalse(first.isDone());
+            release.countDown();
+
+            assertEquals("ORDER_CONFIRMED", first.get(5, TimeUnit.SECONDS));
+            assertEquals("ORDER_CONFIRMED", duplicate.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(paymentGateway, times(1)).authorize(70.0, regular.getEmail());
+        verify(shippingService, times(1)).scheduleDelivery("IDEM-3", false);
+    }
+
+    // ---------------------------------------------------------------------
+    // 23. Compact order – consumed directly, priority decided on cents
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_compactForm_confirmsUsingCentsAndFlyweightItems() {
+        SkuDictionary skus = new SkuDictionary();
+        int sku = skus.idOf("SKU-CP");
+        CompactOrder order = new CompactOrder("CP-1", "compact@example.com", false, 10_001,
+                new int[]{sku}, new int[]{2});
+        when(inventoryService.checkStock("SKU-CP", 2)).thenReturn(true);
+        when(paymentGateway.authorize(100.01, "compact@example.com")).thenReturn(true);
+
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order, skus));
+
+        ArgumentCaptor<List<OrderItem>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryService).reserveStock(captor.capture());
+        assertSame(skus.item(sku, 2), captor.getValue().get(0));
+        verify(shippingService).scheduleDelivery("CP-1", true);
+    }
+
+    // ---------------------------------------------------------------------
+    // 24. Boundary – an Order and its compact form are routed the same way near the threshold
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_orderAndCompactForm_agreeOnPriorityNearThreshold() {
+        SkuDictionary skus = new SkuDictionary();
+        Customer regular = new CustomerBuilder().vip(false).email("noise@example.com").build();
+        when(inventoryService.checkStock("SKU-N", 1)).thenReturn(true);
+        when(paymentGateway.authorize(anyDouble(), eq(regular.getEmail()))).thenReturn(true);
+
+        for (double total : new double[]{99.995, 100.0, 100.004, 100.005, 100.01}) {
+            Order order = new OrderBuilder().id("N-" + total).customer(regular)
+                    .addItem(new OrderItemBuilder().sku("SKU-N").quantity(1).build()).totalAmount(total).build();
+            CompactOrder compact = CompactOrder.from(order, skus);
+            assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order));
+            assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(compact, skus));
+
+            ArgumentCaptor<Boolean> priority = ArgumentCaptor.forClass(Boolean.class);
+            verify(shippingService, times(2)).scheduleDelivery(eq(order.getId()), priority.capture());
+            assertEquals(priority.getAllValues().get(0), priority.getAllValues().get(1), "totale " + total);
+            assertEquals(compact.getTotalCents() > 10_000, priority.getValue(), "totale " + total);
+        }
+    }
+
+    @Test
+    void processOrder_compactForm_whenTotalIsExactly100_prioritisationIsFalse() {
+        SkuDictionary skus = new SkuDictionary();
+        CompactOrder order = new CompactOrder("CP-100", "compact@example.com", false, 10_000,
+                new int[]{skus.idOf("SKU-N")}, new int[]{1});
+        when(inventoryService.checkStock("SKU-N", 1)).thenReturn(true);
+        when(paymentGateway.authorize(100.0, "compact@example.com")).thenReturn(true);
+
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order, skus));
+        verify(shippingService).scheduleDelivery("CP-100", false);
+    }
+
+    // ---------------------------------------------------------------------
+    // 25. Journal – crash between authorization and reservation is resumed on restart
+    // ---------------------------------------------------------------------
+    @Test
+    void recover_whenProcessDiedAfterAuthorization_reservesAndShipsOnRestart(@TempDir Path dir) throws IOException {
+        Customer regular = new CustomerBuilder().vip(false).email("crash@example.com").build();
+        Order order = new OrderBuilder().id("J-1").customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-J").quantity(1).build()).totalAmount(150.0).build();
+        when(inventoryService.checkStock("SKU-J", 1)).thenReturn(true);
+
+        // il processo muore dopo aver registrato l'autorizzazione: il chiamante non ha ricevuto nulla
+        try (MappedOrderJournal journal = MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            journal.started(order);
+            journal.authorized("J-1", 150.0);
+        }
+
+        try (MappedOrderJournal journal = MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            assertEquals(Map.of("J-1", JournalStage.COMPLETED), orderProcessor.withJournal(journal).recover());
+            assertTrue(journal.inFlight().isEmpty());
+        }
+        verify(paymentGateway, never()).authorize(anyDouble(), anyString());
+        verify(inventoryService).reserveStock(any());
+        verify(shippingService).scheduleDelivery("J-1", true);
+    }
+
+    // ---------------------------------------------------------------------
+    // 26. Journal – recovery resumes or compensates each stage
+    // ---------------------------------------------------------------------
+    @Test
+    void recover_resumesReservedAndAuthorized_abortsStarted_andVoidsWhenStockIsGone(@TempDir Path dir) throws IOException {
+        Order started = new OrderBuilder().id("S").addItem(new OrderItemBuilder().sku("SKU-S").build()).build();
+        Order reserved = new OrderBuilder().id("R").addItem(new OrderItemBuilder().sku("SKU-R").build()).build();
+        Order gone = new OrderBuilder().id("G").customer(new CustomerBuilder().vip(true).email("g@example.com").build())
+                .addItem(new OrderItemBuilder().sku("SKU-G").build()).build();
+        when(inventoryService.checkStock("SKU-G", 1)).thenReturn(false);
+
+        try (MappedOrderJournal journal = MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            journal.started(started);
+            journal.started(reserved);
+            journal.authorized("R", 1.0);
+            journal.append("R", JournalStage.RESERVED);
+            journal.started(gone);
+            journal.authorized("G", 1.0);
+
+            Map<String, JournalStage> recovered = orderProcessor.withJournal(journal).recover();
+
+            assertEquals(JournalStage.ABORTED, recovered.get("S"));
+            assertEquals(JournalStage.COMPLETED, recovered.get("R"));
+            assertEquals(JournalStage.ABORTED, recovered.get("G"));
+            assertTrue(journal.inFlight().isEmpty());
+        }
+        verify(shippingService).scheduleDelivery("R", false);
+        verify(paymentGateway).voidAuthorization("G", 1.0, "g@example.com");
+        verify(inventoryService, never()).reserveStock(any());
+        verify(paymentGateway, never()).authorize(anyDouble(), anyString());
+    }
+
+    // ---------------------------------------------------------------------
+    // 27. Journal – completed and declined orders leave nothing to recover
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrders_withJournal_closesEveryOrderInTheJournal(@TempDir Path dir) throws IOException {
+        Customer ok = new CustomerBuilder().email("ok@example.com").build();
+        Customer ko = new CustomerBuilder().email("ko@example.com").build();
+        Order confirmed = new OrderBuilder().id("B-1").customer(ok)
+                .addItem(new OrderItemBuilder().sku("SKU-B").build()).totalAmount(10.0).build();
+        Order declined = new OrderBuilder().id("B-2").customer(ko)
+                .addItem(new OrderItemBuilder().sku("SKU-B").build()).totalAmount(20.0).build();
+        when(inventoryService.checkStock("SKU-B", 2)).thenReturn(true);
+        when(paymentGateway.authorize(10.0, "ok@example.com")).thenReturn(true);
+        when(paymentGateway.authorize(20.0, "ko@example.com")).thenReturn(false);
+
+        try (MappedOrderJournal journal = MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            orderProcessor.withJournal(journal).processOrders(List.of(confirmed, declined));
+
+            assertTrue(journal.inFlight().isEmpty());
+            assertTrue(orderProcessor.recover().isEmpty());
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 28. Policy – market rules replace the default amounts and thresholds
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_withMarketPolicy_usesItsPreAuthorizationAndPrioritySkus() {
+        Properties rules = new Properties();
+        rules.setProperty("preauth.vip", "true");
+        rules.setProperty("preauth.amount", "2.50");
+        rules.setProperty("preauth.vip.limit", "");
+        rules.setProperty("priority.vip", "false");
+        rules.setProperty("priority.threshold", "500.00");
+        rules.setProperty("priority.skus", "SKU-FRESH");
+        orderProcessor.withPolicy(CompiledPolicy.compile(rules));
+
+        Customer vip = new CustomerBuilder().vip(true).email("mkt-vip@example.com").build();
+        Order vipOrder = new OrderBuilder().id("M-1").customer(vip)
+                .addItem(new OrderItemBuilder().sku("SKU-DRY").build()).totalAmount(300.0).build();
+        Customer regular = new CustomerBuilder().vip(false).email("mkt@example.com").build();
+        Order freshOrder = new OrderBuilder().id("M-2").customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-FRESH").build()).totalAmount(20.0).build();
+        when(inventoryService.checkStock("SKU-DRY", 1)).thenReturn(true);
+        when(inventoryService.checkStock("SKU-FRESH", 1)).thenReturn(true);
+        when(paymentGateway.authorize(2.5, vip.getEmail())).thenReturn(true);
+        when(paymentGateway.authorize(20.0, regular.getEmail())).thenReturn(true);
+
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(vipOrder));
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(freshOrder));
+
+        verify(paymentGateway).preAuthorize(2.5, vip.getEmail());
+        verify(shippingService).scheduleDelivery("M-1", false);
+        verify(shippingService).scheduleDelivery("M-2", true);
+    }
+
+    // ---------------------------------------------------------------------
+    // 29. Batch – a repeated order id is authorized, reserved and shipped once
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrders_withRepeatedOrderId_processesItOnce() {
+        Customer regular = new CustomerBuilder().vip(false).email("dup@example.com").build();
+        OrderItem item = new OrderItemBuilder().sku("SKU-DUP").quantity(1).build();
+        Order order = new OrderBuilder().id("D-1").customer(regular).addItem(item).totalAmount(10.0).build();
+        when(inventoryService.checkStock("SKU-DUP", 1)).thenReturn(true);
+        when(paymentGateway.authorize(10.0, regular.getEmail())).thenReturn(true);
+
+        Map<String, String> results = orderProcessor.processOrders(List.of(order, order));
+
+        assertEquals(Map.of("D-1", "ORDER_CONFIRMED"), results);
+        verify(paymentGateway, times(1)).authorize(10.0, regular.getEmail());
+        verify(inventoryService).reserveStock(List.of(item));
+        verify(shippingService).scheduleDeliveries(Map.of("D-1", false));
+    }
+
+    // ---------------------------------------------------------------------
+    // 30. Batch – failed batch reservation falls back to per-order reservations
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrders_whenBatchReservationFails_reservesPerOrder_andVoidsTheOrderThatStillFails() {
+        Customer regular = new CustomerBuilder().vip(false).email("res@example.com").build();
+        OrderItem ok = new OrderItemBuilder().sku("SKU-OK").quantity(1).build();
+        OrderItem ko = new OrderItemBuilder().sku("SKU-KO").quantity(1).build();
+        Order good = new OrderBuilder().id("R-1").customer(regular).addItem(ok).totalAmount(10.0).build();
+        Order bad = new OrderBuilder().id("R-2").customer(regular).addItem(ko).totalAmount(20.0).build();
+        when(inventoryService.checkStock(anyString(), eq(1))).thenReturn(true);
+        when(paymentGateway.authorize(anyDouble(), eq(regular.getEmail()))).thenReturn(true);
+        doAnswer(invocation -> {
+            List<OrderItem> items = invocation.getArgument(0);
+            if (items.contains(ko)) {
+                throw new IllegalStateException("DB error");
+            }
+            return null;
+        }).when(inventoryService).reserveStock(any());
+
+        Map<String, String> results = orderProcessor.processOrders(List.of(good, bad));
+
+        assertEquals("ORDER_CONFIRMED", results.get("R-1"));
+        assertEquals("FAILED", results.get("R-2"));
+        verify(inventoryService).reserveStock(List.of(ok));
+        verify(paymentGateway).voidAuthorization("R-2", 20.0, regular.getEmail());
+        verify(paymentGateway, never()).voidAuthorization(eq("R-1"), anyDouble(), anyString());
+        verify(shippingService).scheduleDeliveries(Map.of("R-1", false));
+    }
+
+    // ---------------------------------------------------------------------
+    // 31. Idempotency – a failure after authorization is remembered, the retry does not repeat it
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_withIdempotencyStore_remembersFailureAfterAuthorization() {
+        orderProcessor.withIdempotencyStore(new BoundedIdempotencyStore(16));
+        Order order = new OrderBuilder().id("IDEM-4")
+                .addItem(new OrderItemBuilder().sku("SKU-R").quantity(1).build()).totalAmount(10.0).build();
+        when(inventoryService.checkStock("SKU-R", 1)).thenReturn(true);
+        when(paymentGateway.authorize(10.0, order.getCustomer().getEmail())).thenReturn(true);
+        doThrow(new IllegalStateException("DB error")).when(inventoryService).reserveStock(order.getItems());
+
+        IllegalStateException first = assertThrows(IllegalStateException.class, () -> orderProcessor.processOrder(order));
+        IllegalStateException retry = assertThrows(IllegalStateException.class, () -> orderProcessor.processOrder(order));
+
+        assertSame(first, retry.getCause());
+        verify(paymentGateway, times(1)).authorize(10.0, order.getCustomer().getEmail());
+        verify(inventoryService, times(1)).reserveStock(order.getItems());
+    }
+
+    // ---------------------------------------------------------------------
+    // 32. Journal – a failure reported to the caller voids the authorization, never fulfils later
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_whenReservationFails_voidsAuthorizationAndRecoverDoesNotFulfil(@TempDir Path dir) throws IOException {
+        Customer regular = new CustomerBuilder().vip(false).email("void@example.com").build();
+        Order order = new OrderBuilder().id("J-2").customer(regular)
+                .addItem(new OrderItemBuilder().sku("SKU-V").quantity(1).build()).totalAmount(40.0).build();
+        when(inventoryService.checkStock("SKU-V", 1)).thenReturn(true);
+        when(paymentGateway.authorize(40.0, regular.getEmail())).thenReturn(true);
+        doThrow(new IllegalStateException("DB error")).when(inventoryService).reserveStock(order.getItems());
+        doThrow(new IllegalStateException("gateway giù")).doNothing()
+                .when(paymentGateway).voidAuthorization("J-2", 40.0, regular.getEmail());
+
+        try (MappedOrderJournal journal = MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            IllegalStateException failure = assertThrows(IllegalStateException.class,
+                    () -> orderProcessor.withJournal(journal).processOrder(order));
+            assertEquals("DB error", failure.getMessage());
+            assertEquals("gateway giù", failure.getSuppressed()[0].getMessage());
+            assertEquals(JournalStage.VOID_PENDING, journal.inFlight().get(0).getStage());
+        }
+
+        // alla ripartenza si completa solo l'annullo, anche se ora lo stock c'è
+        try (MappedOrderJournal journal = MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            assertEquals(Map.of("J-2", JournalStage.ABORTED), orderProcessor.withJournal(journal).recover());
+            assertTrue(journal.inFlight().isEmpty());
+        }
+        verify(paymentGateway, times(2)).voidAuthorization("J-2", 40.0, regular.getEmail());
+        verify(inventoryService, times(1)).reserveStock(order.getItems());
+        verify(shippingService, never()).scheduleDelivery(anyString(), anyBoolean());
+    }
+
+    // ---------------------------------------------------------------------
+    // 33. Policy – one rules snapshot per order, recovery voids the amount actually authorized
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_whenPolicyIsReloadedMidOrder_decidesWithOneSnapshot() {
+        Properties rules = new Properties();
+        rules.setProperty("preauth.vip", "false");
+        rules.setProperty("preauth.amount", "");
+        rules.setProperty("preauth.vip.limit", "");
+        rules.setProperty("priority.vip", "false");
+        rules.setProperty("priority.threshold", "");
+        rules.setProperty("priority.skus", "");
+        CompiledPolicy[] versions = {CompiledPolicy.defaults(), CompiledPolicy.compile(rules)};
+        AtomicInteger reads = new AtomicInteger();
+        // ogni lettura vede la versione successiva, come un ricaricamento tra due decisioni
+        orderProcessor.withPolicy(() -> versions[reads.getAndIncrement() % 2]);
+        Customer vip = new CustomerBuilder().vip(true).email("snap@example.com").build();
+        Order order = new OrderBuilder().id("P-1").customer(vip)
+                .addItem(new OrderItemBuilder().sku("SKU-P").build()).totalAmount(300.0).build();
+        when(inventoryService.checkStock("SKU-P", 1)).thenReturn(true);
+        when(paymentGateway.authorize(1.0, vip.getEmail())).thenReturn(true);
+
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order));
+
+        assertEquals(1, reads.get());
+        verify(paymentGateway).preAuthorize(1.0, vip.getEmail());
+        verify(shippingService).scheduleDelivery("P-1", true);
+    }
+
+    @Test
+    void recover_afterPolicyChange_voidsTheAmountRecordedAtAuthorization(@TempDir Path dir) throws IOException {
+        Customer vip = new CustomerBuilder().vip(true).email("rec@example.com").build();
+        Order order = new OrderBuilder().id("P-2").customer(vip)
+                .addItem(new OrderItemBuilder().sku("SKU-P").build()).totalAmount(300.0).build();
+        Properties rules = new Properties();
+        rules.setProperty("preauth.vip", "true");
+        rules.setProperty("preauth.amount", "2.50");
+        rules.setProperty("preauth.vip.limit", "");
+        rules.setProperty("priority.vip", "true");
+        rules.setProperty("priority.threshold", "100.00");
+        rules.setProperty("priority.skus", "");
+
+        try (MappedOrderJournal journal = MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            journal.started(order);
+            journal.authorized("P-2", 1.0);
+            journal.append("P-2", JournalStage.VOID_PENDING);
+        }
+
+        try (MappedOrderJournal journal = MappedOrderJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            orderProcessor.withJournal(journal).withPolicy(CompiledPolicy.compile(rules));
+            assertEquals(Map.of("P-2", JournalStage.ABORTED), orderProcessor.recover());
+        }
+        verify(paymentGateway).voidAuthorization("P-2", 1.0, vip.getEmail());
+    }
+
+    // ---------------------------------------------------------------------
+    // 34. Batch – a failing authorization or bulk shipping fails only the orders involved
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrders_whenOneAuthorizationThrows_failsThatOrderAndFinishesTheBatch() {
+        Customer ok = new CustomerBuilder().vip(false).email("ok@example.com").build();
+        Customer ko = new CustomerBuilder().vip(false).email("ko@example.com").build();
+        OrderItem item = new OrderItemBuilder().sku("SKU-A").quantity(1).build();
+        Order first = new OrderBuilder().id("A-1").customer(ok).addItem(item).totalAmount(10.0).build();
+        Order broken = new OrderBuilder().id("A-2").customer(ko).addItem(item).totalAmount(20.0).build();
+        Order last = new OrderBuilder().id("A-3").customer(ok).addItem(item).totalAmount(30.0).build();
+        when(inventoryService.checkStock(eq("SKU-A"), anyInt())).thenReturn(true);
+        when(paymentGateway.authorize(anyDouble(), eq(ok.getEmail()))).thenReturn(true);
+        when(paymentGateway.authorize(20.0, ko.getEmail())).thenThrow(new IllegalStateException("gateway giù"));
+
+        Map<String, String> results = orderProcessor.processOrders(List.of(first, broken, last));
+
+        assertEquals("ORDER_CONFIRMED", results.get("A-1"));
+        assertEquals("FAILED", results.get("A-2"));
+        assertEquals("ORDER_CONFIRMED", results.get("A-3"));
+        verify(inventoryService).reserveStock(List.of(item, item));
+        verify(shippingService).scheduleDeliveries(Map.of("A-1", false, "A-3", false));
+        verify(paymentGateway, never()).voidAuthorization(anyString(), anyDouble(), anyString());
+    }
+
+    @Test
+    void processOrders_whenBulkShippingFails_voidsAndFailsShippedOrders_andStillRunsTheFallback() {
+        Customer regular = new CustomerBuilder().vip(false).email("ship@example.com").build();
+        OrderItem plenty = new OrderItemBuilder().sku("SKU-M").quantity(1).build();
+        OrderItem scarce = new OrderItemBuilder().sku("SKU-S").quantity(1).build();
+        Order shipped = new OrderBuilder().id("S-1").customer(regular).addItem(plenty).totalAmount(10.0).build();
+        Order rechecked = new OrderBuilder().id("S-2").customer(regular).addItem(scarce).totalAmount(20.0).build();
+        when(inventoryService.checkStock("SKU-M", 1)).thenReturn(true);
+        // insufficiente per il blocco, disponibile quando l'ordine viene rielaborato da solo
+        when(inventoryService.checkStock("SKU-S", 1)).thenReturn(false, true);
+        when(paymentGateway.authorize(anyDouble(), eq(regular.getEmail()))).thenReturn(true);
+        doThrow(new IllegalStateException("corriere giù")).when(shippingService).scheduleDeliveries(any());
+
+        Map<String, String> results = orderProcessor.processOrders(List.of(shipped, rechecked));
+
+        assertEquals("FAILED", results.get("S-1"));
+        assertEquals("ORDER_CONFIRMED", results.get("S-2"));
+        verify(paymentGateway).voidAuthorization("S-1", 10.0, regular.getEmail());
+        verify(shippingService).scheduleDelivery("S-2", false);
+    }
+
+    // ---------------------------------------------------------------------
+    // 35. Idempotency – a failure before the payment gateway is called is not remembered
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_withIdempotencyStore_retriesFailureBeforeAuthorization() {
+        orderProcessor.withIdempotencyStore(new BoundedIdempotencyStore(16));
+        Order order = new OrderBuilder().id("IDEM-5")
+                .addItem(new OrderItemBuilder().sku("SKU-DOWN").quantity(1).build()).totalAmount(10.0).build();
+        when(inventoryService.checkStock("SKU-DOWN", 1))
+                .thenThrow(new IllegalStateException("inventario giù"))
+                .thenReturn(true);
+        when(paymentGateway.authorize(10.0, order.getCustomer().getEmail())).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> orderProcessor.processOrder(order));
+        assertEquals("ORDER_CONFIRMED", orderProcessor.processOrder(order));
+        verify(paymentGateway, times(1)).authorize(10.0, order.getCustomer().getEmail());
+    }
+
+    // ---------------------------------------------------------------------
+    // 36. Payment port – a gateway without voidAuthorization still works, except in speculative mode
+    // ---------------------------------------------------------------------
+    @Test
+    void processOrder_withGatewayWithoutVoid_works_butSpeculativeModeIsRejected() {
+        PaymentGateway legacy = (amount, email) -> true;
+        OrderProcessor processor = new OrderProcessor(inventoryService, legacy, shippingService);
+        Order order = new OrderBuilder().id("L-1")
+                .addItem(new OrderItemBuilder().sku("SKU-L").quantity(1).build()).totalAmount(10.0).build();
+        when(inventoryService.checkStock("SKU-L", 1)).thenReturn(true);
+
+        assertEquals("ORDER_CONFIRMED", processor.processOrder(order));
+        assertThrows(IllegalArgumentException.class, () -> processor.withSpeculativeAuthorization(Runnable::run));
+        assertThrows(UnsupportedOperationException.class, () -> legacy.voidAuthorization("L-1", 10.0, "x@example.com"));
+    }
+}
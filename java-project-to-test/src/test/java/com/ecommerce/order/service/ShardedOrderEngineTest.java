@@ -0,0 +1,224 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Customer;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardedOrderEngineTest {
+
+    private final OrderProcessor processor = mock(OrderProcessor.class);
+    private ShardedOrderEngine engine;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (engine != null) {
+            engine.shutdown();
+            engine.awaitTermination(Duration.ofSeconds(5));
+        }
+    }
+
+    private static Order order(String id, String email) {
+        return new Order(id, new Customer(email, false), List.of(new OrderItem("SKU-1", 1)), 10.0);
+    }
+
+    // Un'email che cade sullo shard richiesto
+    private static String emailOnShard(ShardedOrderEngine engine, int shard) {
+        for (int i = 0; ; i++) {
+            String email = "customer" + i + "@example.com";
+            if (engine.shardOf(email) == shard) {
+                return email;
+            }
+        }
+    }
+
+    @Test
+    void ordersOfSameCustomerAreProcessedInSubmissionOrderOnOneThread() throws Exception {
+        Map<String, List<String>> seen = new ConcurrentHashMap<>();
+        Map<String, String> threads = new ConcurrentHashMap<>();
+        when(processor.processOrder(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            String email = order.getCustomer().getEmail();
+            seen.computeIfAbsent(email, k -> new ArrayList<>()).add(order.getId());
+            assertEquals(threads.computeIfAbsent(email, k -> Thread.currentThread().getName()),
+                    Thread.currentThread().getName());
+            return OrderProcessor.ORDER_CONFIRMED;
+        });
+        engine = new ShardedOrderEngine(processor, 4, 16);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(engine.submit(order(String.valueOf(i), "c" + (i % 7) + "@example.com")));
+        }
+        for (CompletableFuture<String> result : results) {
+            assertEquals(OrderProcessor.ORDER_CONFIRMED, result.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(7, seen.size());
+        for (List<String> ids : seen.values()) {
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(Integer.parseInt(ids.get(i - 1)) < Integer.parseInt(ids.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void processorExceptionCompletesFutureExceptionallyAndShardKeepsRunning() throws Exception {
+        when(processor.processOrder(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            if (order.getId().equals("bad")) {
+                throw new OutOfStockException("SKU-1");
+            }
+            return OrderProcessor.ORDER_CONFIRMED;
+        });
+        engine = new ShardedOrderEngine(processor, 1, 4);
+
+        CompletableFuture<String> bad = engine.submit(order("bad", "a@example.com"));
+        CompletableFuture<String> good = engine.submit(order("good", "a@example.com"));
+
+        assertEquals(OrderProcessor.ORDER_CONFIRMED, good.get(5, TimeUnit.SECONDS));
+        assertTrue(bad.isCompletedExceptionally());
+    }
+
+    @Test
+    void processorErrorCompletesFutureExceptionallyAndShardKeepsDraining() throws Exception {
+        when(processor.processOrder(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            if (order.getId().equals("bad")) {
+                throw new AssertionError("bug nel processore");
+            }
+            return OrderProcessor.ORDER_CONFIRMED;
+        });
+        engine = new ShardedOrderEngine(processor, 1, 1);
+
+        CompletableFuture<String> bad = engine.submit(order("bad", "a@example.com"));
+        List<CompletableFuture<String>> later = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            later.add(engine.submit(order("good" + i, "a@example.com")));
+        }
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, failure.getCause());
+        for (CompletableFuture<String> result : later) {
+            assertEquals(OrderProcessor.ORDER_CONFIRMED, result.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void fullShardQueueBlocksSubmitter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(processor.processOrder(any(Order.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return OrderProcessor.ORDER_CONFIRMED;
+        });
+        engine = new ShardedOrderEngine(processor, 1, 1);
+
+        CompletableFuture<String> running = engine.submit(order("1", "a@example.com"));
+        while (engine.pending() > 0) {
+            Thread.onSpinWait();
+        }
+        engine.submit(order("2", "a@example.com"));
+        CompletableFuture<CompletableFuture<String>> blocked =
+                CompletableFuture.supplyAsync(() -> engine.submit(order("3", "a@example.com")));
+
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+
+        release.countDown();
+        assertEquals(OrderProcessor.ORDER_CONFIRMED, blocked.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+        assertEquals(OrderProcessor.ORDER_CONFIRMED, running.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void idleShardStealsUnorderedWorkFromBusyShard() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(processor.processOrder(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            if (order.getId().equals("blocker")) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return OrderProcessor.ORDER_CONFIRMED;
+        });
+        engine = new ShardedOrderEngine(processor, 2, 16);
+
+        engine.submit(order("blocker", emailOnShard(engine, 0)));
+        while (engine.pending() > 0) {
+            Thread.onSpinWait();
+        }
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            results.add(engine.submitUnordered(order("u" + i, "guest" + i + "@example.com")));
+        }
+
+        // shard 0 è ancora bloccato: la sua metà del lavoro la esegue lo shard 1
+        for (CompletableFuture<String> result : results) {
+            assertEquals(OrderProcessor.ORDER_CONFIRMED, result.get(5, TimeUnit.SECONDS));
+        }
+        assertTrue(engine.stolen() >= 3);
+        release.countDown();
+    }
+
+    @Test
+    void closeWhenInterrupted_returnsWithFlagRestored_andShardsKeepDraining() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(processor.processOrder(any(Order.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return OrderProcessor.ORDER_CONFIRMED;
+        });
+        engine = new ShardedOrderEngine(processor, 1, 16);
+        CompletableFuture<String> queued = engine.submit(order("A-1", "a@example.com"));
+
+        Thread.currentThread().interrupt();
+        engine.close();
+
+        assertTrue(Thread.interrupted());
+        assertFalse(engine.isTerminated());
+        release.countDown();
+        assertEquals(OrderProcessor.ORDER_CONFIRMED, queued.get(5, TimeUnit.SECONDS));
+        assertTrue(engine.awaitTermination(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void shutdownDrainsQueuedOrdersAndRejectsNewOnes() throws Exception {
+        when(processor.processOrder(any(Order.class))).thenAnswer(invocation -> {
+            Thread.sleep(1);
+            return OrderProcessor.ORDER_CONFIRMED;
+        });
+        engine = new ShardedOrderEngine(processor, 2, 64);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(engine.submit(order(String.valueOf(i), "c" + i + "@example.com")));
+        }
+        engine.shutdown();
+
+        assertThrows(IllegalStateException.class, () -> engine.submit(order("late", "a@example.com")));
+        assertTrue(engine.awaitTermination(Duration.ofSeconds(5)));
+        assertTrue(engine.isTerminated());
+        for (CompletableFuture<String> result : results) {
+            assertEquals(OrderProcessor.ORDER_CONFIRMED, result.getNow(null));
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedOrderEngine(processor, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedOrderEngine(processor, 1, 0));
+    }
+}